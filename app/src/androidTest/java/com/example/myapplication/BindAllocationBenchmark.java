@@ -0,0 +1,176 @@
+package com.example.myapplication;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts what ProductAdapter allocates on the main thread while a fast fling binds
+ * a 10k product catalog, opened through InventoryRepository.openProductList(), into
+ * the dozen holders a RecyclerView keeps around. A frame that shows a row still
+ * loading is bound again once its page has arrived, so page reads are part of the
+ * fling and their cost is counted per page. Rebinding rows whose pages are loaded
+ * may only allocate a small constant, however many binds there are. The first
+ * fling sizes the holders' buffers; the second is measured. Results go to logcat
+ * under the "BindAllocationBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BindAllocationBenchmark {
+
+    private static final String TAG = "BindAllocationBenchmark";
+    private static final String DB_NAME = "bind_benchmark.db";
+    private static final int ROWS = 10_000;
+    private static final int HOLDERS = 12;
+    private static final int ROWS_PER_FRAME = 4;
+    // The last pages of the fling, still loaded once it ends
+    private static final int WINDOW = 4 * PagedProductList.PAGE_SIZE;
+    private static final int REBINDS = 10_000;
+    // The request, its task and its callback for one page read, with room to spare
+    private static final int OBJECTS_PER_PAGE = 16;
+    private static final int OBJECTS_ALLOWED = 64;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private DatabaseHelper db;
+    private PagedProductList list;
+    private ProductAdapter adapter;
+    private ProductAdapter.ProductViewHolder[] holders;
+    // Main thread
+    private int pagesRead;
+    private int counted;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        db = new DatabaseHelper(context, DB_NAME);
+        db.addProducts(generate(ROWS));
+    }
+
+    @After
+    public void tearDown() {
+        if (list != null) {
+            instrumentation.runOnMainSync(list::close);
+        }
+        db.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void flingBindsWithoutAllocating() {
+        list = new InventoryRepository(db).openProductList();
+        instrumentation.runOnMainSync(this::createHolders);
+
+        fling();
+
+        instrumentation.runOnMainSync(this::startCounting);
+        long start = System.nanoTime();
+        fling();
+        long flingMillis = (System.nanoTime() - start) / 1_000_000;
+        instrumentation.runOnMainSync(this::stopCounting);
+        int flingObjects = counted;
+        int flingPages = pagesRead;
+
+        instrumentation.runOnMainSync(this::startCounting);
+        start = System.nanoTime();
+        instrumentation.runOnMainSync(this::rebindWindow);
+        long rebindNanos = System.nanoTime() - start;
+        instrumentation.runOnMainSync(this::stopCounting);
+        int rebindObjects = counted;
+
+        Log.i(TAG, String.format("fling over %d rows: %d objects, %d pages read, %d ms",
+                ROWS, flingObjects, flingPages, flingMillis));
+        Log.i(TAG, String.format("%d binds of loaded rows: %d objects, %.2f us/bind",
+                REBINDS, rebindObjects, rebindNanos / 1000.0 / REBINDS));
+        assertTrue("objects per page read: " + flingObjects / (double) flingPages,
+                flingObjects <= flingPages * OBJECTS_PER_PAGE + OBJECTS_ALLOWED);
+        assertTrue("objects for " + REBINDS + " binds: " + rebindObjects,
+                rebindObjects <= OBJECTS_ALLOWED);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void createHolders() {
+        Context themed = new ContextThemeWrapper(context, R.style.Theme_InventoryPro);
+        FrameLayout parent = new FrameLayout(themed);
+
+        adapter = new ProductAdapter(null);
+        adapter.setProducts(list);
+        // Still tells the adapter, which has no RecyclerView to rebind its rows
+        list.setOnRowsLoadedListener((start, count) -> {
+            pagesRead++;
+            adapter.notifyItemRangeChanged(start, count);
+        });
+        holders = new ProductAdapter.ProductViewHolder[HOLDERS];
+        for (int h = 0; h < HOLDERS; h++) {
+            holders[h] = adapter.onCreateViewHolder(parent, 0);
+        }
+    }
+
+    private void fling() {
+        for (int from = 0; from < ROWS; from += ROWS_PER_FRAME) {
+            while (!bindFrame(from)) {
+                SystemClock.sleep(1);
+            }
+        }
+    }
+
+    // Whether every row of the frame was loaded
+    private boolean bindFrame(int from) {
+        boolean[] loaded = {true};
+        instrumentation.runOnMainSync(() -> {
+            for (int i = from; i < Math.min(from + ROWS_PER_FRAME, ROWS); i++) {
+                adapter.onBindViewHolder(holders[i % HOLDERS], i);
+                if (list.get(i) == null) loaded[0] = false;
+            }
+        });
+        return loaded[0];
+    }
+
+    private void rebindWindow() {
+        for (int i = 0; i < REBINDS; i++) {
+            adapter.onBindViewHolder(holders[i % HOLDERS], ROWS - WINDOW + i % WINDOW);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void startCounting() {
+        pagesRead = 0;
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+    }
+
+    @SuppressWarnings("deprecation")
+    private void stopCounting() {
+        Debug.stopAllocCounting();
+        counted = Debug.getThreadAllocCount();
+    }
+
+    private static List<Product> generate(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Every seventh row is low on stock, so the status flips during the fling
+            int quantity = i % 7 == 0 ? 2 : 10 + i % 500;
+            products.add(new Product("Widget " + i, "SKU-" + i, "Category " + (i % 20),
+                    quantity, 5, 99 + i * 37L, "Supplier " + (i % 50)));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Insert throughput and on-disk size of the old TEXT primary keys against the
+ * INTEGER rowid keys, and recordMovement() under contention from several threads.
+ * Results go to logcat under the "IdLayoutBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class IdLayoutBenchmark {
+
+    private static final String TAG = "IdLayoutBenchmark";
+    private static final String TEXT_DB = "ids_text_benchmark.db";
+    private static final String INTEGER_DB = "ids_integer_benchmark.db";
+    private static final String MOVEMENT_DB = "movement_benchmark.db";
+    private static final int[] PRODUCT_COUNTS = {10_000, 100_000};
+    private static final int TRANSACTIONS_PER_PRODUCT = 5;
+    private static final int BATCH_SIZE = 500;
+    private static final int THREADS = 4;
+    private static final int MOVEMENTS_PER_THREAD = 2_000;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        deleteDatabases();
+    }
+
+    @After
+    public void tearDown() {
+        deleteDatabases();
+    }
+
+    @Test
+    public void insertThroughputAndSizeByKeyType() {
+        for (int count : PRODUCT_COUNTS) {
+            deleteDatabases();
+            measure(TEXT_DB, "TEXT", count);
+            measure(INTEGER_DB, "INTEGER", count);
+        }
+    }
+
+    @Test
+    public void concurrentMovementsGetDistinctIds() throws Exception {
+        DatabaseHelper db = new DatabaseHelper(context, MOVEMENT_DB);
+        try {
+            Product product = new Product("Contended Widget", "CW-1", "Bench",
+                    THREADS * MOVEMENTS_PER_THREAD, 0, 100, "Bench");
+            db.addProduct(product);
+
+            Set<Long> ids = new HashSet<>();
+            AtomicInteger failed = new AtomicInteger();
+            Thread[] threads = new Thread[THREADS];
+            long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < MOVEMENTS_PER_THREAD; i++) {
+                        Transaction movement = db.recordMovement(product.getId(), MovementType.OUT, 1, null);
+                        if (movement == null) {
+                            failed.incrementAndGet();
+                            continue;
+                        }
+                        synchronized (ids) {
+                            ids.add(movement.getId());
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            int total = THREADS * MOVEMENTS_PER_THREAD;
+            Log.i(TAG, String.format("%d threads x %d movements: %dms, %.0f movements/s",
+                    THREADS, MOVEMENTS_PER_THREAD, millis, total * 1000.0 / Math.max(1, millis)));
+
+            assertEquals(0, failed.get());
+            assertEquals(total, ids.size());
+            assertEquals(total, db.getProductTransactions(product.getId()).size());
+            assertEquals(0, db.getProduct(product.getId()).getQuantity());
+        } finally {
+            db.close();
+        }
+    }
+
+    // Same columns and secondary index as the real tables, only the key type differs
+    private void measure(String name, String keyType, int productCount) {
+        SQLiteDatabase db = context.openOrCreateDatabase(name, Context.MODE_PRIVATE, null);
+        try {
+            db.execSQL("CREATE TABLE products (id " + keyType + " PRIMARY KEY, " +
+                    "name TEXT NOT NULL, sku TEXT UNIQUE NOT NULL, quantity INTEGER)");
+            db.execSQL("CREATE TABLE transactions (id " + keyType + " PRIMARY KEY, " +
+                    "product_id " + keyType + " NOT NULL, type TEXT NOT NULL, " +
+                    "quantity INTEGER NOT NULL, timestamp INTEGER)");
+            db.execSQL("CREATE INDEX idx_transactions_product_time " +
+                    "ON transactions(product_id, timestamp)");
+
+            boolean text = "TEXT".equals(keyType);
+            long base = System.currentTimeMillis();
+            long[] productIds = new long[productCount];
+
+            SQLiteStatement insertProduct = db.compileStatement(
+                    "INSERT INTO products (id, name, sku, quantity) VALUES (?, ?, ?, ?)");
+            long start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < productCount; i++) {
+                    // The old ids were currentTimeMillis() strings
+                    productIds[i] = text ? base + i : IdGenerator.nextId();
+                    bindId(insertProduct, 1, productIds[i], text);
+                    insertProduct.bindString(2, "Product " + i);
+                    insertProduct.bindString(3, "SKU-" + i);
+                    insertProduct.bindLong(4, i % 100);
+                    insertProduct.executeInsert();
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        db.setTransactionSuccessful();
+                        db.endTransaction();
+                        db.beginTransaction();
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insertProduct.close();
+            }
+            long productNanos = System.nanoTime() - start;
+
+            int transactionCount = productCount * TRANSACTIONS_PER_PRODUCT;
+            SQLiteStatement insertTransaction = db.compileStatement("INSERT INTO transactions " +
+                    "(id, product_id, type, quantity, timestamp) VALUES (?, ?, ?, ?, ?)");
+            start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < transactionCount; i++) {
+                    bindId(insertTransaction, 1, text ? base + productCount + i : IdGenerator.nextId(), text);
+                    bindId(insertTransaction, 2, productIds[i % productCount], text);
+                    insertTransaction.bindString(3, i % 2 == 0 ? "in" : "out");
+                    insertTransaction.bindLong(4, 1 + i % 10);
+                    insertTransaction.bindLong(5, base + i);
+                    insertTransaction.executeInsert();
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        db.setTransactionSuccessful();
+                        db.endTransaction();
+                        db.beginTransaction();
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insertTransaction.close();
+            }
+            long transactionNanos = System.nanoTime() - start;
+
+            long bytes = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null)
+                    * DatabaseUtils.longForQuery(db, "PRAGMA page_size", null);
+
+            Log.i(TAG, String.format("%s keys, %d products: products %.0f rows/s, " +
+                            "transactions %.0f rows/s, %d KB (%.1f bytes/row)",
+                    keyType, productCount,
+                    productCount * 1e9 / productNanos,
+                    transactionCount * 1e9 / transactionNanos,
+                    bytes / 1024, bytes / (double) (productCount + transactionCount)));
+        } finally {
+            db.close();
+        }
+    }
+
+    private static void bindId(SQLiteStatement statement, int index, long id, boolean text) {
+        if (text) {
+            statement.bindString(index, String.valueOf(id));
+        } else {
+            statement.bindLong(index, id);
+        }
+    }
+
+    private void deleteDatabases() {
+        context.deleteDatabase(TEXT_DB);
+        context.deleteDatabase(INTEGER_DB);
+        context.deleteDatabase(MOVEMENT_DB);
+    }
+}
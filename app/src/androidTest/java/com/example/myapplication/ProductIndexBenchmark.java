@@ -0,0 +1,110 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Search latency of the in-memory ProductIndex against the FTS product search,
+ * at 20k products. The short queries go through the prefix keys, the longer ones
+ * through the trigram posting lists. Also logs how long load() takes and the
+ * index's memory report. Results go to logcat under the "ProductIndexBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductIndexBenchmark {
+
+    private static final String TAG = "ProductIndexBenchmark";
+    private static final String DB_NAME = "index_benchmark.db";
+    private static final int PRODUCTS = 20_000;
+    private static final String[] QUERIES = {"b", "wi", "sk-1", "blue", "gadget 19", "sk-12345", "nomatch"};
+    private static final int LIMIT = 20;
+    private static final int RUNS = 101;
+
+    private static final String[] ADJECTIVES = {"Blue", "Red", "Heavy", "Mini", "Steel", "Smart"};
+    private static final String[] NOUNS = {"Widget", "Gadget", "Bolt", "Bracket", "Sensor", "Cable"};
+
+    private Context context;
+    private DatabaseHelper db;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        db = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void searchLatencyAgainstFts() {
+        db.addProducts(generate(PRODUCTS));
+
+        ProductIndex index = new ProductIndex();
+        long start = System.nanoTime();
+        index.load(db);
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        Log.i(TAG, "load: " + loadMillis + " ms, " + index.getMemoryReport());
+        assertEquals(PRODUCTS, index.size());
+
+        for (String query : QUERIES) {
+            long indexMicros = medianMicros(() -> index.search(query, LIMIT).length);
+            long ftsMicros = medianMicros(() -> db.searchProducts(query).size());
+            Log.i(TAG, String.format("q=\"%s\" index=%dus (%d ids) fts=%dus (%d rows)",
+                    query, indexMicros, index.search(query, LIMIT).length,
+                    ftsMicros, db.searchProducts(query).size()));
+        }
+
+        assertTrue(index.search("blue wid", LIMIT).length > 0);
+        assertEquals(0, index.search("nomatch", LIMIT).length);
+    }
+
+    private interface Search {
+        int run();
+    }
+
+    private static long medianMicros(Search search) {
+        long[] samples = new long[RUNS];
+        search.run(); // warm up the JIT and the statement cache
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            search.run();
+            samples[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(samples);
+        return samples[RUNS / 2];
+    }
+
+    private static List<Product> generate(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(new Product(
+                    ADJECTIVES[i % ADJECTIVES.length] + " " +
+                            NOUNS[(i / ADJECTIVES.length) % NOUNS.length] + " " + i,
+                    "SK-" + i,
+                    "Category " + (i % 40),
+                    i % 100,
+                    10,
+                    100 + (i % 500) * 10,
+                    "Supplier " + (i % 200)));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Compares the FTS product search against the old LIKE '%q%' scan at
+ * 10k, 100k and 1M products. Results go to logcat under the "SearchBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductSearchBenchmark {
+
+    private static final String TAG = "SearchBenchmark";
+    private static final String DB_NAME = "search_benchmark.db";
+    private static final int[] CATALOG_SIZES = {10_000, 100_000, 1_000_000};
+    private static final String[] QUERIES = {"wid", "blue gad", "4242", "sk-9876", "nomatch"};
+    private static final int RUNS = 7;
+
+    private static final String[] ADJECTIVES = {"Blue", "Red", "Heavy", "Mini", "Steel", "Smart"};
+    private static final String[] NOUNS = {"Widget", "Gadget", "Bolt", "Bracket", "Sensor", "Cable"};
+
+    private Context context;
+    private DatabaseHelper db;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        db = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void searchLatencyByCatalogSize() {
+        int loaded = 0;
+        for (int size : CATALOG_SIZES) {
+            BulkInsertResult insert = db.addProducts(generate(loaded, size));
+            loaded = size;
+            Log.i(TAG, "catalog " + size + ": " + insert);
+
+            for (String query : QUERIES) {
+                long fts = medianMicros(() -> db.searchProducts(query).size());
+                long like = medianMicros(() -> db.searchProductsByLike(query).size());
+                Log.i(TAG, String.format("n=%d q=\"%s\" fts=%dus (%d rows) like=%dus (%d rows)",
+                        size, query, fts, db.searchProducts(query).size(),
+                        like, db.searchProductsByLike(query).size()));
+            }
+        }
+
+        assertFalse(db.searchProducts("blue wid").isEmpty());
+    }
+
+    private interface Search {
+        int run();
+    }
+
+    private static long medianMicros(Search search) {
+        long[] samples = new long[RUNS];
+        search.run(); // warm the page cache and statement cache
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            search.run();
+            samples[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(samples);
+        return samples[RUNS / 2];
+    }
+
+    // Products are generated lazily so a million of them never sit in memory at once
+    private static Iterable<Product> generate(int from, int to) {
+        return () -> new Iterator<Product>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public Product next() {
+                int i = next++;
+                Product product = new Product(
+                        ADJECTIVES[i % ADJECTIVES.length] + " " +
+                                NOUNS[(i / ADJECTIVES.length) % NOUNS.length] + " " + i,
+                        "SK-" + i,
+                        "Category " + (i % 40),
+                        i % 100,
+                        10,
+                        100 + (i % 500) * 10,
+                        "Supplier " + (i % 200));
+                return product;
+            }
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Per-call latency of point lookups when each connection's prepared-statement
+ * cache serves them, against the same lookups with SQL that differs on every
+ * call and so is compiled every time. Both the old db.query() lookups and the
+ * current constant SQL hit that cache; this shows what it is worth. Also times
+ * the product count through a statement compiled once, which is what
+ * DatabaseHelper changed, against compiling it per call. Results go to logcat
+ * under the "StatementBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StatementCacheBenchmark {
+
+    private static final String TAG = "StatementBenchmark";
+    private static final String DB_NAME = "statement_benchmark.db";
+    private static final int PRODUCTS = 10_000;
+    private static final int LOOKUPS = 5_000;
+    private static final int RUNS = 7;
+
+    private Context context;
+    private DatabaseHelper db;
+    private long[] ids;
+    // Makes every uncached lookup's SQL unique
+    private long uncachedCalls;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        db = new DatabaseHelper(context, DB_NAME);
+
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Product " + i, "SKU-" + i, "Category " + (i % 20),
+                    i % 100, 10, 100 + i, "Supplier"));
+        }
+        db.addProducts(products);
+
+        // Same random order for every run
+        Random random = new Random(42);
+        ids = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            ids[i] = products.get(random.nextInt(PRODUCTS)).getId();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void pointLookupLatency() {
+        SQLiteDatabase sqlite = db.getReadableDatabase();
+
+        long cachedById = medianNanosPerCall(() -> {
+            for (long id : ids) assertNotNull(db.getProduct(id));
+        });
+        long uncachedById = medianNanosPerCall(() -> {
+            for (long id : ids) {
+                // The cache matches on the SQL string, the comment makes each one new
+                Cursor cursor = sqlite.rawQuery("SELECT * FROM products WHERE id = ? /* " +
+                        uncachedCalls++ + " */", new String[]{String.valueOf(id)});
+                cursor.moveToFirst();
+                cursor.close();
+            }
+        });
+        long cachedBySku = medianNanosPerCall(() -> {
+            for (int i = 0; i < LOOKUPS; i++) assertNotNull(db.getProductBySku("SKU-" + (i % PRODUCTS)));
+        });
+        long cachedCount = medianNanosPerCall(() -> {
+            for (int i = 0; i < LOOKUPS; i++) db.getTotalProductCount();
+        });
+        long compiledEachCount = medianNanosPerCall(() -> {
+            for (int i = 0; i < LOOKUPS; i++) {
+                DatabaseUtils.longForQuery(sqlite,
+                        "SELECT product_count FROM inventory_stats WHERE id = 1", null);
+            }
+        });
+
+        Log.i(TAG, String.format("by id: statement cache hit %dns/call, miss %dns/call",
+                cachedById, uncachedById));
+        Log.i(TAG, String.format("by sku: cached %dns/call", cachedBySku));
+        Log.i(TAG, String.format("product count: compiled once %dns/call, compiled per call %dns/call",
+                cachedCount, compiledEachCount));
+
+        assertEquals(PRODUCTS, db.getTotalProductCount());
+    }
+
+    private interface Batch {
+        void run();
+    }
+
+    private static long medianNanosPerCall(Batch batch) {
+        long[] samples = new long[RUNS];
+        batch.run(); // warm the page cache and statement caches
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            batch.run();
+            samples[i] = (System.nanoTime() - start) / LOOKUPS;
+        }
+        Arrays.sort(samples);
+        return samples[RUNS / 2];
+    }
+}
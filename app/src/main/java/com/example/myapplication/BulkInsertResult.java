@@ -0,0 +1,45 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Outcome of DatabaseHelper.addProducts / addTransactions
+public class BulkInsertResult {
+
+    private final List<Long> batchNanos = new ArrayList<>();
+    private int rowsInserted;
+    private int rowsSkipped;
+    private long totalNanos;
+
+    void addBatch(int inserted, int skipped, long nanos) {
+        batchNanos.add(nanos);
+        rowsInserted += inserted;
+        rowsSkipped += skipped;
+        totalNanos += nanos;
+    }
+
+    public int getRowsInserted() { return rowsInserted; }
+
+    // Rows that already existed (same id or SKU) and were left untouched
+    public int getRowsSkipped() { return rowsSkipped; }
+
+    public int getBatchCount() { return batchNanos.size(); }
+
+    public List<Long> getBatchNanos() { return Collections.unmodifiableList(batchNanos); }
+
+    public long getTotalMillis() { return totalNanos / 1_000_000L; }
+
+    public double getRowsPerSecond() {
+        if (totalNanos == 0) return 0;
+        return (rowsInserted + rowsSkipped) * 1_000_000_000.0 / totalNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%d inserted, %d skipped in %d batches, %d ms (%.0f rows/s)",
+                rowsInserted, rowsSkipped, getBatchCount(), getTotalMillis(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.myapplication;
+
+import java.util.Collections;
+import java.util.List;
+
+// Everything the dashboard shows, read in one transaction so the numbers agree
+public class DashboardSnapshot {
+
+    public static class CategoryTotal {
+        private final String category;
+        private final int quantity;
+
+        public CategoryTotal(String category, int quantity) {
+            this.category = category;
+            this.quantity = quantity;
+        }
+
+        public String getCategory() { return category; }
+
+        public int getQuantity() { return quantity; }
+    }
+
+    private final InventoryStats stats;
+    private final List<CategoryTotal> categories;
+    private final int lowStockCount;
+    private final List<Product> lowStockProducts;
+
+    public DashboardSnapshot(InventoryStats stats, List<CategoryTotal> categories,
+                             int lowStockCount, List<Product> lowStockProducts) {
+        this.stats = stats;
+        this.categories = Collections.unmodifiableList(categories);
+        this.lowStockCount = lowStockCount;
+        this.lowStockProducts = Collections.unmodifiableList(lowStockProducts);
+    }
+
+    public InventoryStats getStats() { return stats; }
+
+    // Largest first
+    public List<CategoryTotal> getCategories() { return categories; }
+
+    // All low-stock products, even when getLowStockProducts() holds only the top N
+    public int getLowStockCount() { return lowStockCount; }
+
+    // Lowest quantity first
+    public List<Product> getLowStockProducts() { return lowStockProducts; }
+}
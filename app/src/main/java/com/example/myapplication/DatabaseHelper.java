@@ -3,44 +3,245 @@ package com.example.myapplication;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
 
 import com.example.myapplication.Product;
 import com.example.myapplication.Transaction;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME = "inventory.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 12;
 
     // Products Table
-    private static final String TABLE_PRODUCTS = "products";
+    public static final String TABLE_PRODUCTS = "products";
     private static final String COL_PRODUCT_ID = "id";
     private static final String COL_PRODUCT_NAME = "name";
     private static final String COL_PRODUCT_SKU = "sku";
     private static final String COL_PRODUCT_CATEGORY = "category";
     private static final String COL_PRODUCT_QUANTITY = "quantity";
     private static final String COL_PRODUCT_MIN_STOCK = "min_stock";
-    private static final String COL_PRODUCT_PRICE = "price";
+    // Whole cents
+    private static final String COL_PRODUCT_PRICE = "price_cents";
     private static final String COL_PRODUCT_SUPPLIER = "supplier";
     private static final String COL_PRODUCT_CREATED = "created_at";
+    // 1 while quantity <= min_stock, maintained by triggers (partial index idx_products_low_stock)
+    private static final String COL_PRODUCT_LOW_STOCK = "low_stock";
 
     // Transactions Table
-    private static final String TABLE_TRANSACTIONS = "transactions";
+    public static final String TABLE_TRANSACTIONS = "transactions";
     private static final String COL_TRANS_ID = "id";
     private static final String COL_TRANS_PRODUCT_ID = "product_id";
     private static final String COL_TRANS_PRODUCT_NAME = "product_name";
+    // MovementType code
     private static final String COL_TRANS_TYPE = "type";
     private static final String COL_TRANS_QUANTITY = "quantity";
     private static final String COL_TRANS_NOTES = "notes";
     private static final String COL_TRANS_TIMESTAMP = "timestamp";
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    // Full-text index over products (docid = products.rowid), kept in sync by triggers
+    private static final String TABLE_PRODUCTS_FTS = "products_fts";
+
+    // Single-row summary of the products table, kept current by triggers
+    private static final String TABLE_INVENTORY_STATS = "inventory_stats";
+    private static final String COL_STATS_ID = "id";
+    private static final String COL_STATS_PRODUCT_COUNT = "product_count";
+    private static final String COL_STATS_ITEM_COUNT = "item_count";
+    private static final String COL_STATS_VALUE = "value_cents";
+    private static final String COL_STATS_LOW_STOCK_COUNT = "low_stock_count";
+
+    // Stock checkpoints: per-product quantity at a point in time
+    private static final String TABLE_STOCK_SNAPSHOTS = "stock_snapshots";
+    private static final String COL_SNAPSHOT_PRODUCT_ID = "product_id";
+    private static final String COL_SNAPSHOT_TAKEN_AT = "taken_at";
+    private static final String COL_SNAPSHOT_QUANTITY = "quantity";
+
+    // Single row: when the last checkpoint ran and how many movements came since
+    private static final String TABLE_SNAPSHOT_STATE = "snapshot_state";
+    private static final String COL_STATE_LAST_TAKEN_AT = "last_taken_at";
+    private static final String COL_STATE_MOVEMENTS_SINCE = "movements_since";
+
+    // Per-product, per-day (local date, "yyyy-MM-dd") movement totals, kept by triggers
+    private static final String TABLE_DAILY_MOVEMENTS = "daily_movements";
+    private static final String COL_DAILY_PRODUCT_ID = "product_id";
+    private static final String COL_DAILY_DAY = "day";
+    private static final String COL_DAILY_IN = "qty_in";
+    private static final String COL_DAILY_OUT = "qty_out";
+    private static final String COL_DAILY_COUNT = "movement_count";
+
+    // Projections
+    private static final String[] PRODUCT_COLUMNS = {
+            COL_PRODUCT_ID, COL_PRODUCT_NAME, COL_PRODUCT_SKU, COL_PRODUCT_CATEGORY,
+            COL_PRODUCT_QUANTITY, COL_PRODUCT_MIN_STOCK, COL_PRODUCT_PRICE,
+            COL_PRODUCT_SUPPLIER, COL_PRODUCT_CREATED};
+
+    // What a product row in a list shows
+    private static final String[] PRODUCT_SUMMARY_COLUMNS = {
+            COL_PRODUCT_ID, COL_PRODUCT_NAME, COL_PRODUCT_SKU, COL_PRODUCT_CATEGORY,
+            COL_PRODUCT_QUANTITY, COL_PRODUCT_MIN_STOCK, COL_PRODUCT_PRICE};
+
+    // PRODUCT_COLUMNS for queries where products is aliased as p
+    private static final String PRODUCT_COLUMNS_P = "p." + TextUtils.join(", p.", PRODUCT_COLUMNS);
+
+    private static final String[] TRANSACTION_COLUMNS = {
+            COL_TRANS_ID, COL_TRANS_PRODUCT_ID, COL_TRANS_PRODUCT_NAME, COL_TRANS_TYPE,
+            COL_TRANS_QUANTITY, COL_TRANS_NOTES, COL_TRANS_TIMESTAMP};
+
+    // SQL for the hot paths, built once. Compiled SQLiteStatements for the
+    // single-value queries and the movement writes are kept in compiledStatements.
+    // The cursor queries rely on each connection's prepared-statement cache, which
+    // matches on the SQL string and served the db.query() calls these replaced too.
+    private static final String SQL_PRODUCT_BY_ID = "SELECT " +
+            TextUtils.join(", ", PRODUCT_COLUMNS) + " FROM " + TABLE_PRODUCTS +
+            " WHERE " + COL_PRODUCT_ID + " = ?";
+
+    private static final String SQL_PRODUCT_BY_SKU = "SELECT " +
+            TextUtils.join(", ", PRODUCT_COLUMNS) + " FROM " + TABLE_PRODUCTS +
+            " WHERE " + COL_PRODUCT_SKU + " = ?";
+
+    private static final String SQL_SEARCH_PRODUCTS = "SELECT " + PRODUCT_COLUMNS_P +
+            " FROM " + TABLE_PRODUCTS_FTS + " f JOIN " + TABLE_PRODUCTS +
+            " p ON p.rowid = f.docid" +
+            " WHERE " + TABLE_PRODUCTS_FTS + " MATCH ?" +
+            " ORDER BY CASE" +
+            " WHEN p." + COL_PRODUCT_NAME + " LIKE ? THEN 0" +
+            " WHEN p." + COL_PRODUCT_SKU + " LIKE ? THEN 1" +
+            " ELSE 2 END, p." + COL_PRODUCT_NAME + " ASC" +
+            " LIMIT ?";
+
+    private static final String SQL_PRODUCT_COUNT = "SELECT " + COL_STATS_PRODUCT_COUNT +
+            " FROM " + TABLE_INVENTORY_STATS + " WHERE " + COL_STATS_ID + " = 1";
+
+    private static final String SQL_COUNT_PRODUCTS = "SELECT COUNT(*) FROM " + TABLE_PRODUCTS;
+
+    private static final String SQL_ITEM_COUNT = "SELECT " + COL_STATS_ITEM_COUNT +
+            " FROM " + TABLE_INVENTORY_STATS + " WHERE " + COL_STATS_ID + " = 1";
+
+    private static final String SQL_INVENTORY_VALUE = "SELECT " + COL_STATS_VALUE +
+            " FROM " + TABLE_INVENTORY_STATS + " WHERE " + COL_STATS_ID + " = 1";
+
+    // Stock of product ?1 as of timestamp ?2 in one statement; see getStockAt()
+    private static final String SQL_STOCK_AT = "SELECT COALESCE(" +
+            "(SELECT s." + COL_SNAPSHOT_QUANTITY + " + " + netMovement("s." + COL_SNAPSHOT_TAKEN_AT, "?2") +
+            " FROM " + TABLE_STOCK_SNAPSHOTS + " s WHERE s." + COL_SNAPSHOT_PRODUCT_ID + " = ?1" +
+            " AND s." + COL_SNAPSHOT_TAKEN_AT + " <= ?2 ORDER BY s." + COL_SNAPSHOT_TAKEN_AT + " DESC LIMIT 1), " +
+            "(SELECT s." + COL_SNAPSHOT_QUANTITY + " - " + netMovement("?2", "s." + COL_SNAPSHOT_TAKEN_AT) +
+            " FROM " + TABLE_STOCK_SNAPSHOTS + " s WHERE s." + COL_SNAPSHOT_PRODUCT_ID + " = ?1" +
+            " AND s." + COL_SNAPSHOT_TAKEN_AT + " > ?2 ORDER BY s." + COL_SNAPSHOT_TAKEN_AT + " ASC LIMIT 1), " +
+            netMovement(String.valueOf(Long.MIN_VALUE), "?2") + ")";
+
+    // Net movement of product ?1 in (from, to], read through idx_transactions_product_time
+    private static String netMovement(String from, String to) {
+        return "(SELECT COALESCE(SUM(CASE t." + COL_TRANS_TYPE +
+                " WHEN " + MovementType.IN.getCode() + " THEN t." + COL_TRANS_QUANTITY +
+                " ELSE -t." + COL_TRANS_QUANTITY + " END), 0) FROM " + TABLE_TRANSACTIONS + " t" +
+                " WHERE t." + COL_TRANS_PRODUCT_ID + " = ?1 AND t." + COL_TRANS_TIMESTAMP + " > " + from +
+                " AND t." + COL_TRANS_TIMESTAMP + " <= " + to + ")";
+    }
+
+    private static final String SQL_STOCK_IN = "UPDATE " + TABLE_PRODUCTS +
+            " SET " + COL_PRODUCT_QUANTITY + " = " + COL_PRODUCT_QUANTITY + " + ?" +
+            " WHERE " + COL_PRODUCT_ID + " = ?";
+
+    private static final String SQL_STOCK_OUT = "UPDATE " + TABLE_PRODUCTS +
+            " SET " + COL_PRODUCT_QUANTITY + " = " + COL_PRODUCT_QUANTITY + " - ?" +
+            " WHERE " + COL_PRODUCT_ID + " = ? AND " + COL_PRODUCT_QUANTITY + " >= ?";
+
+    private static final String SQL_INSERT_MOVEMENT = "INSERT INTO " + TABLE_TRANSACTIONS + " (" +
+            COL_TRANS_ID + ", " +
+            COL_TRANS_PRODUCT_ID + ", " +
+            COL_TRANS_PRODUCT_NAME + ", " +
+            COL_TRANS_TYPE + ", " +
+            COL_TRANS_QUANTITY + ", " +
+            COL_TRANS_NOTES + ", " +
+            COL_TRANS_TIMESTAMP + ") SELECT ?, " +
+            COL_PRODUCT_ID + ", " + COL_PRODUCT_NAME + ", ?, ?, ?, ? FROM " +
+            TABLE_PRODUCTS + " WHERE " + COL_PRODUCT_ID + " = ?";
+
+    // Per-connection prepared-statement cache; the default of 25 is smaller than
+    // the set of distinct statements the app runs
+    private static final int SQL_CACHE_SIZE = 50;
+
+    private final Map<String, SQLiteStatement> compiledStatements = new HashMap<>();
+    private SQLiteDatabase compiledFor;
+
+    private volatile SnapshotPolicy snapshotPolicy = SnapshotPolicy.DEFAULT;
+
+    // One helper (and one open connection pool) per process
+    private static volatile DatabaseHelper instance;
+
+    private static final AtomicInteger openCount = new AtomicInteger();
+    private static final AtomicInteger closeCount = new AtomicInteger();
+
+    public static DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DatabaseHelper.class) {
+                if (instance == null) {
+                    instance = new DatabaseHelper(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private DatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // A separate database file, for benchmarks that shouldn't touch the real inventory
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        // WAL lets readers keep going while a write is in progress
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.setMaxSqlCacheSize(SQL_CACHE_SIZE);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        openCount.incrementAndGet();
+        // Ids stored before this process started (or under a different clock) stay below new ones
+        IdGenerator.advancePast(DatabaseUtils.longForQuery(db, "SELECT MAX(" +
+                "COALESCE((SELECT MAX(" + COL_PRODUCT_ID + ") FROM " + TABLE_PRODUCTS + "), 0), " +
+                "COALESCE((SELECT MAX(" + COL_TRANS_ID + ") FROM " + TABLE_TRANSACTIONS + "), 0))", null));
+    }
+
+    @Override
+    public synchronized void close() {
+        closeCount.incrementAndGet();
+        closeCompiledStatements();
+        super.close();
+    }
+
+    // Connection churn counters, should stay at 1 open / 0 close while the app runs
+    public static int getOpenCount() {
+        return openCount.get();
+    }
+
+    public static int getCloseCount() {
+        return closeCount.get();
     }
 
     @Override
@@ -52,7 +253,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COL_PRODUCT_CATEGORY + " TEXT, " +
                 COL_PRODUCT_QUANTITY + " INTEGER DEFAULT 0, " +
                 COL_PRODUCT_MIN_STOCK + " INTEGER DEFAULT 0, " +
-                COL_PRODUCT_PRICE + " REAL DEFAULT 0, " +
+                "price REAL DEFAULT 0, " + // price_cents since v11
                 COL_PRODUCT_SUPPLIER + " TEXT, " +
                 COL_PRODUCT_CREATED + " INTEGER)";
 
@@ -60,7 +261,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COL_TRANS_ID + " TEXT PRIMARY KEY, " +
                 COL_TRANS_PRODUCT_ID + " TEXT NOT NULL, " +
                 COL_TRANS_PRODUCT_NAME + " TEXT, " +
-                COL_TRANS_TYPE + " TEXT NOT NULL, " +
+                COL_TRANS_TYPE + " TEXT NOT NULL, " + // "in" / "out" until v11
                 COL_TRANS_QUANTITY + " INTEGER NOT NULL, " +
                 COL_TRANS_NOTES + " TEXT, " +
                 COL_TRANS_TIMESTAMP + " INTEGER, " +
@@ -69,13 +270,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         db.execSQL(createProductsTable);
         db.execSQL(createTransactionsTable);
+
+        // Fresh installs start from the v1 tables and go through the same migrations
+        DatabaseMigrations.migrate(db, 1, DATABASE_VERSION);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TRANSACTIONS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PRODUCTS);
-        onCreate(db);
+        DatabaseMigrations.migrate(db, oldVersion, newVersion);
     }
 
     // ================= PRODUCT OPERATIONS =================
@@ -90,12 +292,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COL_PRODUCT_CATEGORY, product.getCategory());
         values.put(COL_PRODUCT_QUANTITY, product.getQuantity());
         values.put(COL_PRODUCT_MIN_STOCK, product.getMinStock());
-        values.put(COL_PRODUCT_PRICE, product.getPrice());
+        values.put(COL_PRODUCT_PRICE, product.getPriceCents());
         values.put(COL_PRODUCT_SUPPLIER, product.getSupplier());
         values.put(COL_PRODUCT_CREATED, product.getCreatedAt());
 
         long result = db.insert(TABLE_PRODUCTS, null, values);
-        db.close();
         return result;
     }
 
@@ -108,55 +309,156 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COL_PRODUCT_CATEGORY, product.getCategory());
         values.put(COL_PRODUCT_QUANTITY, product.getQuantity());
         values.put(COL_PRODUCT_MIN_STOCK, product.getMinStock());
-        values.put(COL_PRODUCT_PRICE, product.getPrice());
+        values.put(COL_PRODUCT_PRICE, product.getPriceCents());
         values.put(COL_PRODUCT_SUPPLIER, product.getSupplier());
 
-        int result = db.update(TABLE_PRODUCTS, values,
-                COL_PRODUCT_ID + " = ?", new String[]{product.getId()});
-        db.close();
+        // A manual quantity edit isn't in the ledger, so the new quantity is
+        // checkpointed with it to keep getStockAt() right on both sides of the edit
+        int result;
+        db.beginTransactionNonExclusive();
+        try {
+            result = db.update(TABLE_PRODUCTS, values,
+                    COL_PRODUCT_ID + " = ?", new String[]{String.valueOf(product.getId())});
+            if (result > 0) {
+                insertSnapshot(db, product.getId(), System.currentTimeMillis(), product.getQuantity());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
         return result;
     }
 
-    public void deleteProduct(String productId) {
+    public void deleteProduct(long productId) {
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_PRODUCTS, COL_PRODUCT_ID + " = ?", new String[]{productId});
-        db.delete(TABLE_TRANSACTIONS, COL_TRANS_PRODUCT_ID + " = ?", new String[]{productId});
-        db.close();
+        String[] args = {String.valueOf(productId)};
+        db.delete(TABLE_PRODUCTS, COL_PRODUCT_ID + " = ?", args);
+        db.delete(TABLE_TRANSACTIONS, COL_TRANS_PRODUCT_ID + " = ?", args);
     }
 
-    public Product getProduct(String productId) {
+    public Product getProduct(long productId) {
+        Cursor cursor = this.getReadableDatabase().rawQuery(SQL_PRODUCT_BY_ID,
+                new String[]{String.valueOf(productId)});
+        return new ProductMapper(cursor).mapFirst();
+    }
+
+    public Product getProductBySku(String sku) {
+        Cursor cursor = this.getReadableDatabase().rawQuery(SQL_PRODUCT_BY_SKU,
+                new String[]{sku});
+        return new ProductMapper(cursor).mapFirst();
+    }
+
+    public List<Product> getAllProducts() {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_PRODUCTS, null,
-                COL_PRODUCT_ID + " = ?", new String[]{productId},
-                null, null, null);
+        Cursor cursor = db.query(TABLE_PRODUCTS, PRODUCT_COLUMNS, null, null,
+                null, null, COL_PRODUCT_NAME + " ASC, " + COL_PRODUCT_ID + " ASC");
+        return new ProductMapper(cursor).mapAll();
+    }
 
-        Product product = null;
-        if (cursor != null && cursor.moveToFirst()) {
-            product = cursorToProduct(cursor);
-            cursor.close();
+    public static final int PAGE_SIZE = 50;
+
+    // Keyset paging by (name, id): seeks past the last row of the previous page
+    // through idx_products_name, so page N costs the same as page 1.
+    // Pass null for the first page.
+    public List<Product> getProductsPage(Product after, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String selection = null;
+        String[] selectionArgs = null;
+
+        if (after != null) {
+            selection = COL_PRODUCT_NAME + " >= ? AND (" +
+                    COL_PRODUCT_NAME + " > ? OR " + COL_PRODUCT_ID + " > ?)";
+            selectionArgs = new String[]{after.getName(), after.getName(),
+                    String.valueOf(after.getId())};
         }
-        db.close();
-        return product;
+
+        Cursor cursor = db.query(TABLE_PRODUCTS, PRODUCT_COLUMNS, selection, selectionArgs,
+                null, null, COL_PRODUCT_NAME + " ASC, " + COL_PRODUCT_ID + " ASC",
+                String.valueOf(limit));
+        return new ProductMapper(cursor).mapAll();
     }
 
-    public List<Product> getAllProducts() {
-        List<Product> products = new ArrayList<>();
+    // The same order by position. OFFSET still steps over every row before the
+    // page, so prefer getProductsPage() when the row before it is at hand.
+    public List<Product> getProductsAt(int offset, int limit) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_PRODUCTS, null, null, null,
-                null, null, COL_PRODUCT_NAME + " ASC");
+        Cursor cursor = db.query(TABLE_PRODUCTS, PRODUCT_COLUMNS, null, null,
+                null, null, COL_PRODUCT_NAME + " ASC, " + COL_PRODUCT_ID + " ASC",
+                offset + "," + limit);
+        return new ProductMapper(cursor).mapAll();
+    }
 
-        if (cursor.moveToFirst()) {
-            do {
-                products.add(cursorToProduct(cursor));
-            } while (cursor.moveToNext());
+    // Counts the rows themselves, unlike getTotalProductCount()
+    public int countProducts() {
+        return (int) queryLong(this.getReadableDatabase(), SQL_COUNT_PRODUCTS);
+    }
+
+    public interface ProductKeyVisitor {
+        void visit(long id, String name, String sku);
+    }
+
+    // Id, name and SKU of every product, without building Product objects
+    public void forEachProductKey(ProductKeyVisitor visitor) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_PRODUCTS,
+                new String[]{COL_PRODUCT_ID, COL_PRODUCT_NAME, COL_PRODUCT_SKU},
+                null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                visitor.visit(cursor.getLong(0), cursor.getString(1), cursor.getString(2));
+            }
+        } finally {
+            cursor.close();
         }
-        cursor.close();
-        db.close();
-        return products;
     }
 
+    // SQLite reads a negative LIMIT as no limit
+    public static final int NO_LIMIT = -1;
+
+    // Prefix search on the words of name, SKU, category and supplier through the
+    // FTS index. "blu wid" finds "Blue Widget". Name matches rank ahead of SKU
+    // matches, then alphabetical. If nothing matches (e.g. "1001" inside "WID1001")
+    // it falls back to a substring match on SKU alone.
     public List<Product> searchProducts(String query) {
-        List<Product> products = new ArrayList<>();
+        return searchProducts(query, NO_LIMIT, null);
+    }
+
+    // At most limit rows (NO_LIMIT for all). Cancelling signal aborts the query
+    // with an OperationCanceledException.
+    public List<Product> searchProducts(String query, int limit, CancellationSignal signal) {
+        List<Product> products = searchProductsByFts(query, limit, signal);
+        if (products == null || products.isEmpty()) {
+            products = searchProductsBySku(query, limit, signal);
+        }
+        return products;
+    }
+
+    // The two halves of searchProducts(); null if the query has no words
+    List<Product> searchProductsByFts(String query, int limit, CancellationSignal signal) {
+        String match = toFtsQuery(query);
+        if (match == null) {
+            return null;
+        }
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        String prefix = query.trim() + "%";
+
+        Cursor cursor = db.rawQuery(SQL_SEARCH_PRODUCTS,
+                new String[]{match, prefix, prefix, String.valueOf(limit)}, signal);
+        return new ProductMapper(cursor).mapAll();
+    }
+
+    List<Product> searchProductsBySku(String query, int limit, CancellationSignal signal) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(false, TABLE_PRODUCTS, PRODUCT_COLUMNS,
+                COL_PRODUCT_SKU + " LIKE ?", new String[]{"%" + query.trim() + "%"},
+                null, null, COL_PRODUCT_NAME + " ASC",
+                limit == NO_LIMIT ? null : String.valueOf(limit), signal);
+        return new ProductMapper(cursor).mapAll();
+    }
+
+    // The original LIKE '%q%' scan, kept to compare against in the search benchmark
+    List<Product> searchProductsByLike(String query) {
         SQLiteDatabase db = this.getReadableDatabase();
 
         String selection = COL_PRODUCT_NAME + " LIKE ? OR " +
@@ -166,50 +468,90 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String[] selectionArgs = new String[]{
                 "%" + query + "%", "%" + query + "%", "%" + query + "%"};
 
-        Cursor cursor = db.query(TABLE_PRODUCTS, null, selection, selectionArgs,
+        Cursor cursor = db.query(TABLE_PRODUCTS, PRODUCT_COLUMNS, selection, selectionArgs,
                 null, null, COL_PRODUCT_NAME + " ASC");
+        return new ProductMapper(cursor).mapAll();
+    }
 
-        if (cursor.moveToFirst()) {
-            do {
-                products.add(cursorToProduct(cursor));
-            } while (cursor.moveToNext());
+    // "Blue wid-10" -> "blue* wid* 10*". Each word becomes a prefix term (all must
+    // match). Words are split and case-folded the way the FTS "simple" tokenizer
+    // indexed the products, which folds ASCII only: a Unicode-lowercased term would
+    // miss an uppercase non-ASCII letter stored as written. Separators also keep FTS
+    // operators and quotes out of the query. Null if there are no words.
+    static String toFtsQuery(String query) {
+        StringBuilder match = new StringBuilder();
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !isFtsTokenChar(query.charAt(i))) i++;
+            int start = i;
+            while (i < length && isFtsTokenChar(query.charAt(i))) i++;
+            if (i > start) {
+                if (match.length() > 0) match.append(' ');
+                for (int j = start; j < i; j++) {
+                    match.append(foldFtsCase(query.charAt(j)));
+                }
+                match.append('*');
+            }
         }
-        cursor.close();
-        db.close();
-        return products;
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    // Part of a word for the "simple" tokenizer: ASCII letters and digits, and anything non-ASCII
+    static boolean isFtsTokenChar(char c) {
+        return c >= 0x80 || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    // The "simple" tokenizer's case folding: ASCII only
+    static char foldFtsCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
     }
 
+    // Only the summary columns: the low-stock card doesn't show supplier or created date
     public List<Product> getLowStockProducts() {
-        List<Product> products = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+        return queryLowStock(this.getReadableDatabase(), null);
+    }
+
+    // Reads only the entries of the partial low-stock index, already in quantity order,
+    // so the cost follows the number of low-stock products rather than the catalog size
+    private List<Product> queryLowStock(SQLiteDatabase db, Integer limit) {
+        String selection = COL_PRODUCT_LOW_STOCK + " = 1";
 
-        String selection = COL_PRODUCT_QUANTITY + " <= " + COL_PRODUCT_MIN_STOCK;
+        Cursor cursor = db.query(TABLE_PRODUCTS, PRODUCT_SUMMARY_COLUMNS, selection, null,
+                null, null, COL_PRODUCT_QUANTITY + " ASC",
+                limit == null ? null : String.valueOf(limit));
+        return new ProductMapper(cursor).mapAll();
+    }
 
-        Cursor cursor = db.query(TABLE_PRODUCTS, null, selection, null,
-                null, null, COL_PRODUCT_QUANTITY + " ASC");
+    private static final class ProductMapper extends RowMapper<Product> {
+        private final int id, name, sku, category, quantity, minStock, price, supplier, created;
 
-        if (cursor.moveToFirst()) {
-            do {
-                products.add(cursorToProduct(cursor));
-            } while (cursor.moveToNext());
+        ProductMapper(Cursor cursor) {
+            super(cursor);
+            id = column(COL_PRODUCT_ID);
+            name = column(COL_PRODUCT_NAME);
+            sku = column(COL_PRODUCT_SKU);
+            category = column(COL_PRODUCT_CATEGORY);
+            quantity = column(COL_PRODUCT_QUANTITY);
+            minStock = column(COL_PRODUCT_MIN_STOCK);
+            price = column(COL_PRODUCT_PRICE);
+            supplier = column(COL_PRODUCT_SUPPLIER);
+            created = column(COL_PRODUCT_CREATED);
         }
-        cursor.close();
-        db.close();
-        return products;
-    }
 
-    private Product cursorToProduct(Cursor cursor) {
-        Product product = new Product();
-        product.setId(cursor.getString(cursor.getColumnIndexOrThrow(COL_PRODUCT_ID)));
-        product.setName(cursor.getString(cursor.getColumnIndexOrThrow(COL_PRODUCT_NAME)));
-        product.setSku(cursor.getString(cursor.getColumnIndexOrThrow(COL_PRODUCT_SKU)));
-        product.setCategory(cursor.getString(cursor.getColumnIndexOrThrow(COL_PRODUCT_CATEGORY)));
-        product.setQuantity(cursor.getInt(cursor.getColumnIndexOrThrow(COL_PRODUCT_QUANTITY)));
-        product.setMinStock(cursor.getInt(cursor.getColumnIndexOrThrow(COL_PRODUCT_MIN_STOCK)));
-        product.setPrice(cursor.getDouble(cursor.getColumnIndexOrThrow(COL_PRODUCT_PRICE)));
-        product.setSupplier(cursor.getString(cursor.getColumnIndexOrThrow(COL_PRODUCT_SUPPLIER)));
-        product.setCreatedAt(cursor.getLong(cursor.getColumnIndexOrThrow(COL_PRODUCT_CREATED)));
-        return product;
+        @Override
+        public Product map() {
+            Product product = new Product(getLong(id));
+            product.setName(getString(name));
+            product.setSku(getString(sku));
+            product.setCategory(getString(category));
+            product.setQuantity(getInt(quantity));
+            product.setMinStock(getInt(minStock));
+            product.setPriceCents(getLong(price));
+            product.setSupplier(getString(supplier));
+            product.setCreatedAt(getLong(created));
+            return product;
+        }
     }
 
     // ================= TRANSACTION OPERATIONS =================
@@ -221,95 +563,651 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COL_TRANS_ID, transaction.getId());
         values.put(COL_TRANS_PRODUCT_ID, transaction.getProductId());
         values.put(COL_TRANS_PRODUCT_NAME, transaction.getProductName());
-        values.put(COL_TRANS_TYPE, transaction.getType());
+        values.put(COL_TRANS_TYPE, transaction.getType().getCode());
         values.put(COL_TRANS_QUANTITY, transaction.getQuantity());
         values.put(COL_TRANS_NOTES, transaction.getNotes());
         values.put(COL_TRANS_TIMESTAMP, transaction.getTimestamp());
 
         long result = db.insert(TABLE_TRANSACTIONS, null, values);
-        db.close();
+        maybeTakeStockSnapshot();
         return result;
     }
 
+    // Stock movement as one unit of work: the quantity is adjusted in SQL by the
+    // delta (no read-modify-write of the whole row) and the ledger row is written
+    // in the same transaction. A stock-out only applies if enough stock is left.
+    // Returns null when the product doesn't exist or the stock is insufficient.
+    public Transaction recordMovement(long productId, MovementType type, int quantity, String notes) {
+        if (type == null) {
+            throw new IllegalArgumentException("Movement type is required");
+        }
+        boolean stockIn = type == MovementType.IN;
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Movement quantity must be positive");
+        }
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        Transaction transaction = new Transaction();
+        transaction.setProductId(productId);
+        transaction.setType(type);
+        transaction.setQuantity(quantity);
+        transaction.setNotes(notes);
+
+        db.beginTransactionNonExclusive();
+        try {
+            SQLiteStatement update = compiledStatement(db, stockIn ? SQL_STOCK_IN : SQL_STOCK_OUT);
+            int updated;
+            synchronized (update) {
+                update.bindLong(1, quantity);
+                update.bindLong(2, productId);
+                if (!stockIn) update.bindLong(3, quantity);
+                updated = update.executeUpdateDelete();
+                update.clearBindings();
+            }
+
+            if (updated == 0) {
+                return null;
+            }
+
+            SQLiteStatement insert = compiledStatement(db, SQL_INSERT_MOVEMENT);
+            synchronized (insert) {
+                insert.bindLong(1, transaction.getId());
+                insert.bindLong(2, type.getCode());
+                insert.bindLong(3, quantity);
+                bindText(insert, 4, notes);
+                insert.bindLong(5, transaction.getTimestamp());
+                insert.bindLong(6, productId);
+                insert.executeInsert();
+                insert.clearBindings();
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        maybeTakeStockSnapshot();
+        return transaction;
+    }
+
     public List<Transaction> getAllTransactions() {
-        List<Transaction> transactions = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_TRANSACTIONS, null, null, null,
+        Cursor cursor = db.query(TABLE_TRANSACTIONS, TRANSACTION_COLUMNS, null, null,
                 null, null, COL_TRANS_TIMESTAMP + " DESC");
+        return new TransactionMapper(cursor).mapAll();
+    }
 
-        if (cursor.moveToFirst()) {
-            do {
-                transactions.add(cursorToTransaction(cursor));
-            } while (cursor.moveToNext());
+    // Newest first, keyset paging by (timestamp, id) through idx_transactions_time_id.
+    // Pass null for the first page.
+    public List<Transaction> getTransactionsPage(Transaction after, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String selection = null;
+        String[] selectionArgs = null;
+
+        if (after != null) {
+            String timestamp = String.valueOf(after.getTimestamp());
+            selection = COL_TRANS_TIMESTAMP + " <= ? AND (" +
+                    COL_TRANS_TIMESTAMP + " < ? OR " + COL_TRANS_ID + " < ?)";
+            selectionArgs = new String[]{timestamp, timestamp, String.valueOf(after.getId())};
         }
-        cursor.close();
-        db.close();
-        return transactions;
+
+        Cursor cursor = db.query(TABLE_TRANSACTIONS, TRANSACTION_COLUMNS, selection, selectionArgs,
+                null, null, COL_TRANS_TIMESTAMP + " DESC, " + COL_TRANS_ID + " DESC",
+                String.valueOf(limit));
+        return new TransactionMapper(cursor).mapAll();
     }
 
-    public List<Transaction> getProductTransactions(String productId) {
-        List<Transaction> transactions = new ArrayList<>();
+    public List<Transaction> getProductTransactions(long productId) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_TRANSACTIONS, null,
-                COL_TRANS_PRODUCT_ID + " = ?", new String[]{productId},
+        Cursor cursor = db.query(TABLE_TRANSACTIONS, TRANSACTION_COLUMNS,
+                COL_TRANS_PRODUCT_ID + " = ?", new String[]{String.valueOf(productId)},
                 null, null, COL_TRANS_TIMESTAMP + " DESC");
+        return new TransactionMapper(cursor).mapAll();
+    }
 
-        if (cursor.moveToFirst()) {
-            do {
-                transactions.add(cursorToTransaction(cursor));
-            } while (cursor.moveToNext());
+    private static final class TransactionMapper extends RowMapper<Transaction> {
+        private final int id, productId, productName, type, quantity, notes, timestamp;
+
+        TransactionMapper(Cursor cursor) {
+            super(cursor);
+            id = column(COL_TRANS_ID);
+            productId = column(COL_TRANS_PRODUCT_ID);
+            productName = column(COL_TRANS_PRODUCT_NAME);
+            type = column(COL_TRANS_TYPE);
+            quantity = column(COL_TRANS_QUANTITY);
+            notes = column(COL_TRANS_NOTES);
+            timestamp = column(COL_TRANS_TIMESTAMP);
+        }
+
+        @Override
+        public Transaction map() {
+            Transaction transaction = new Transaction(getLong(id));
+            transaction.setProductId(getLong(productId));
+            transaction.setProductName(getString(productName));
+            transaction.setType(MovementType.fromCode(getInt(type)));
+            transaction.setQuantity(getInt(quantity));
+            transaction.setNotes(getString(notes));
+            transaction.setTimestamp(getLong(timestamp));
+            return transaction;
         }
-        cursor.close();
-        db.close();
-        return transactions;
     }
 
-    private Transaction cursorToTransaction(Cursor cursor) {
-        Transaction transaction = new Transaction();
-        transaction.setId(cursor.getString(cursor.getColumnIndexOrThrow(COL_TRANS_ID)));
-        transaction.setProductId(cursor.getString(cursor.getColumnIndexOrThrow(COL_TRANS_PRODUCT_ID)));
-        transaction.setProductName(cursor.getString(cursor.getColumnIndexOrThrow(COL_TRANS_PRODUCT_NAME)));
-        transaction.setType(cursor.getString(cursor.getColumnIndexOrThrow(COL_TRANS_TYPE)));
-        transaction.setQuantity(cursor.getInt(cursor.getColumnIndexOrThrow(COL_TRANS_QUANTITY)));
-        transaction.setNotes(cursor.getString(cursor.getColumnIndexOrThrow(COL_TRANS_NOTES)));
-        transaction.setTimestamp(cursor.getLong(cursor.getColumnIndexOrThrow(COL_TRANS_TIMESTAMP)));
-        return transaction;
+    // ================= COMPILED STATEMENTS =================
+    // Compiled once per open database and reused. A SQLiteStatement holds its
+    // bindings itself, so callers bind and execute it inside synchronized (statement).
+    // Write statements are only used inside a transaction, which already admits one
+    // thread at a time.
+
+    private SQLiteStatement compiledStatement(SQLiteDatabase db, String sql) {
+        synchronized (compiledStatements) {
+            if (compiledFor != db) {
+                closeCompiledStatements();
+                compiledFor = db;
+            }
+            SQLiteStatement statement = compiledStatements.get(sql);
+            if (statement == null) {
+                statement = db.compileStatement(sql);
+                compiledStatements.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    // Single-value query through a compiled statement
+    private long queryLong(SQLiteDatabase db, String sql, long... args) {
+        SQLiteStatement statement = compiledStatement(db, sql);
+        synchronized (statement) {
+            for (int i = 0; i < args.length; i++) {
+                statement.bindLong(i + 1, args[i]);
+            }
+            try {
+                return statement.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return 0; // no row
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    private void closeCompiledStatements() {
+        synchronized (compiledStatements) {
+            for (SQLiteStatement statement : compiledStatements.values()) {
+                statement.close();
+            }
+            compiledStatements.clear();
+            compiledFor = null;
+        }
+    }
+
+    // ================= BULK INSERT =================
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private interface RowBinder<T> {
+        void bind(SQLiteStatement statement, T row);
+    }
+
+    public BulkInsertResult addProducts(Iterable<Product> products) {
+        return addProducts(products, DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkInsertResult addProducts(Iterable<Product> products, int batchSize) {
+        String sql = "INSERT OR IGNORE INTO " + TABLE_PRODUCTS + " (" +
+                COL_PRODUCT_ID + ", " +
+                COL_PRODUCT_NAME + ", " +
+                COL_PRODUCT_SKU + ", " +
+                COL_PRODUCT_CATEGORY + ", " +
+                COL_PRODUCT_QUANTITY + ", " +
+                COL_PRODUCT_MIN_STOCK + ", " +
+                COL_PRODUCT_PRICE + ", " +
+                COL_PRODUCT_SUPPLIER + ", " +
+                COL_PRODUCT_CREATED + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        return bulkInsert(sql, products, batchSize, (statement, product) -> {
+            statement.bindLong(1, product.getId());
+            bindText(statement, 2, product.getName());
+            bindText(statement, 3, product.getSku());
+            bindText(statement, 4, product.getCategory());
+            statement.bindLong(5, product.getQuantity());
+            statement.bindLong(6, product.getMinStock());
+            statement.bindLong(7, product.getPriceCents());
+            bindText(statement, 8, product.getSupplier());
+            statement.bindLong(9, product.getCreatedAt());
+        });
+    }
+
+    public BulkInsertResult addTransactions(Iterable<Transaction> transactions) {
+        return addTransactions(transactions, DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkInsertResult addTransactions(Iterable<Transaction> transactions, int batchSize) {
+        String sql = "INSERT OR IGNORE INTO " + TABLE_TRANSACTIONS + " (" +
+                COL_TRANS_ID + ", " +
+                COL_TRANS_PRODUCT_ID + ", " +
+                COL_TRANS_PRODUCT_NAME + ", " +
+                COL_TRANS_TYPE + ", " +
+                COL_TRANS_QUANTITY + ", " +
+                COL_TRANS_NOTES + ", " +
+                COL_TRANS_TIMESTAMP + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        return bulkInsert(sql, transactions, batchSize, (statement, transaction) -> {
+            statement.bindLong(1, transaction.getId());
+            statement.bindLong(2, transaction.getProductId());
+            bindText(statement, 3, transaction.getProductName());
+            statement.bindLong(4, transaction.getType().getCode());
+            statement.bindLong(5, transaction.getQuantity());
+            bindText(statement, 6, transaction.getNotes());
+            statement.bindLong(7, transaction.getTimestamp());
+        });
+    }
+
+    // One compiled statement for the whole load, one explicit transaction
+    // (and one journal sync) per batch instead of per row
+    private <T> BulkInsertResult bulkInsert(String sql, Iterable<T> rows, int batchSize,
+                                            RowBinder<T> binder) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement statement = db.compileStatement(sql);
+        BulkInsertResult result = new BulkInsertResult();
+        Iterator<T> iterator = rows.iterator();
+
+        try {
+            while (iterator.hasNext()) {
+                long start = System.nanoTime();
+                int inserted = 0;
+                int skipped = 0;
+
+                db.beginTransaction();
+                try {
+                    while (inserted + skipped < batchSize && iterator.hasNext()) {
+                        binder.bind(statement, iterator.next());
+                        if (statement.executeInsert() == -1) {
+                            skipped++;
+                        } else {
+                            inserted++;
+                        }
+                        statement.clearBindings();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+
+                result.addBatch(inserted, skipped, System.nanoTime() - start);
+            }
+        } finally {
+            statement.close();
+        }
+        return result;
+    }
+
+    private static void bindText(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
 
     // ================= STATISTICS =================
 
-    public int getTotalProductCount() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_PRODUCTS, null);
-        int count = 0;
-        if (cursor.moveToFirst()) count = cursor.getInt(0);
+    // One primary-key lookup, however many products there are
+    public InventoryStats getInventoryStats() {
+        return readInventoryStats(this.getReadableDatabase());
+    }
+
+    private InventoryStats readInventoryStats(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT " +
+                COL_STATS_PRODUCT_COUNT + ", " +
+                COL_STATS_ITEM_COUNT + ", " +
+                COL_STATS_VALUE + ", " +
+                COL_STATS_LOW_STOCK_COUNT + " FROM " + TABLE_INVENTORY_STATS +
+                " WHERE " + COL_STATS_ID + " = 1", null);
+
+        InventoryStats stats = new InventoryStats(0, 0, 0, 0);
+        if (cursor.moveToFirst()) {
+            stats = new InventoryStats(cursor.getInt(0), cursor.getInt(1),
+                    cursor.getLong(2), cursor.getInt(3));
+        }
         cursor.close();
-        db.close();
-        return count;
+        return stats;
+    }
+
+    public int getTotalProductCount() {
+        return (int) queryLong(this.getReadableDatabase(), SQL_PRODUCT_COUNT);
     }
 
     public int getTotalItemCount() {
+        return (int) queryLong(this.getReadableDatabase(), SQL_ITEM_COUNT);
+    }
+
+    public long getTotalInventoryValueCents() {
+        return queryLong(this.getReadableDatabase(), SQL_INVENTORY_VALUE);
+    }
+
+    private static final String STATS_AGGREGATES = "COUNT(*), " +
+            "COALESCE(SUM(" + COL_PRODUCT_QUANTITY + "), 0), " +
+            "COALESCE(SUM(" + COL_PRODUCT_QUANTITY + " * " + COL_PRODUCT_PRICE + "), 0), " +
+            "COALESCE(SUM(" + COL_PRODUCT_QUANTITY + " <= " + COL_PRODUCT_MIN_STOCK + "), 0)";
+
+    // Full scan of products, what the stats row should contain
+    public InventoryStats computeInventoryStats() {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT SUM(" + COL_PRODUCT_QUANTITY + ") FROM " + TABLE_PRODUCTS, null);
-        int count = 0;
-        if (cursor.moveToFirst()) count = cursor.getInt(0);
+        Cursor cursor = db.rawQuery("SELECT " + STATS_AGGREGATES +
+                " FROM " + TABLE_PRODUCTS, null);
+
+        InventoryStats stats = new InventoryStats(0, 0, 0, 0);
+        if (cursor.moveToFirst()) {
+            stats = new InventoryStats(cursor.getInt(0), cursor.getInt(1),
+                    cursor.getLong(2), cursor.getInt(3));
+        }
         cursor.close();
-        db.close();
-        return count;
+        return stats;
     }
 
-    public double getTotalInventoryValue() {
-        SQLiteDatabase db = this.getReadableDatabase();
+    // Recomputes the low-stock flags and then the stats row from the products table
+    public void rebuildInventoryStats() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            db.execSQL("UPDATE " + TABLE_PRODUCTS + " SET " + COL_PRODUCT_LOW_STOCK + " = (" +
+                    COL_PRODUCT_QUANTITY + " <= " + COL_PRODUCT_MIN_STOCK + ") WHERE " +
+                    COL_PRODUCT_LOW_STOCK + " <> (" +
+                    COL_PRODUCT_QUANTITY + " <= " + COL_PRODUCT_MIN_STOCK + ")");
 
-        Cursor cursor = db.rawQuery("SELECT SUM(" +
-                COL_PRODUCT_QUANTITY + " * " + COL_PRODUCT_PRICE + ") FROM " +
-                TABLE_PRODUCTS, null);
+            db.execSQL("INSERT OR REPLACE INTO " + TABLE_INVENTORY_STATS + " (" +
+                    COL_STATS_ID + ", " +
+                    COL_STATS_PRODUCT_COUNT + ", " +
+                    COL_STATS_ITEM_COUNT + ", " +
+                    COL_STATS_VALUE + ", " +
+                    COL_STATS_LOW_STOCK_COUNT + ") SELECT 1, " + STATS_AGGREGATES +
+                    " FROM " + TABLE_PRODUCTS);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // True if the trigger-maintained row matches a full recount
+    public boolean verifyInventoryStats() {
+        InventoryStats stored = getInventoryStats();
+        InventoryStats actual = computeInventoryStats();
+        return stored.getProductCount() == actual.getProductCount()
+                && stored.getItemCount() == actual.getItemCount()
+                && stored.getLowStockCount() == actual.getLowStockCount()
+                && stored.getInventoryValueCents() == actual.getInventoryValueCents();
+    }
+
+    // ================= DASHBOARD =================
+
+    private static final String UNCATEGORIZED = "Uncategorized";
+
+    // Totals, per-category quantities and the lowStockLimit lowest-stock products.
+    // They come from one compound SELECT, so all three see the same state of the
+    // data without a transaction: SQLiteDatabase only begins IMMEDIATE ones, which
+    // would hold the write lock and stall writers for every dashboard refresh.
+    // The first column says which part a row belongs to, the others depend on it.
+    private static final int PART_STATS = 0;
+    private static final int PART_CATEGORY = 1;
+    private static final int PART_LOW_STOCK = 2;
+
+    private static final String SQL_DASHBOARD = "SELECT " + PART_STATS + ", " +
+            COL_STATS_PRODUCT_COUNT + ", " + COL_STATS_ITEM_COUNT + ", " +
+            COL_STATS_VALUE + ", " + COL_STATS_LOW_STOCK_COUNT + ", NULL, NULL, NULL" +
+            " FROM " + TABLE_INVENTORY_STATS + " WHERE " + COL_STATS_ID + " = 1" +
+            // GROUP BY on the raw column walks idx_products_category without a sort
+            " UNION ALL SELECT " + PART_CATEGORY + ", " + COL_PRODUCT_CATEGORY + ", " +
+            "SUM(" + COL_PRODUCT_QUANTITY + "), NULL, NULL, NULL, NULL, NULL" +
+            " FROM " + TABLE_PRODUCTS + " GROUP BY " + COL_PRODUCT_CATEGORY +
+            // Only the entries of the partial low-stock index, already in quantity order
+            " UNION ALL SELECT * FROM (SELECT " + PART_LOW_STOCK + ", " +
+            TextUtils.join(", ", PRODUCT_SUMMARY_COLUMNS) + " FROM " + TABLE_PRODUCTS +
+            " WHERE " + COL_PRODUCT_LOW_STOCK + " = 1" +
+            " ORDER BY " + COL_PRODUCT_QUANTITY + " ASC LIMIT ?)";
+
+    public DashboardSnapshot getDashboardSnapshot(int lowStockLimit) {
+        Cursor cursor = this.getReadableDatabase().rawQuery(SQL_DASHBOARD,
+                new String[]{String.valueOf(lowStockLimit)});
+
+        InventoryStats stats = new InventoryStats(0, 0, 0, 0);
+        List<DashboardSnapshot.CategoryTotal> categories = new ArrayList<>();
+        List<Product> lowStock = new ArrayList<>();
+        int uncategorized = 0;
+        boolean hasUncategorized = false;
+        try {
+            while (cursor.moveToNext()) {
+                switch (cursor.getInt(0)) {
+                    case PART_STATS:
+                        stats = new InventoryStats(cursor.getInt(1), cursor.getInt(2),
+                                cursor.getLong(3), cursor.getInt(4));
+                        break;
+
+                    case PART_CATEGORY:
+                        // NULL / blank categories are folded into "Uncategorized"
+                        String category = cursor.getString(1);
+                        int quantity = cursor.getInt(2);
+                        if (category == null || category.trim().isEmpty() || UNCATEGORIZED.equals(category)) {
+                            uncategorized += quantity;
+                            hasUncategorized = true;
+                        } else {
+                            categories.add(new DashboardSnapshot.CategoryTotal(category, quantity));
+                        }
+                        break;
+
+                    case PART_LOW_STOCK:
+                        // Columns 1.. are PRODUCT_SUMMARY_COLUMNS
+                        Product product = new Product(cursor.getLong(1));
+                        product.setName(cursor.getString(2));
+                        product.setSku(cursor.getString(3));
+                        product.setCategory(cursor.getString(4));
+                        product.setQuantity(cursor.getInt(5));
+                        product.setMinStock(cursor.getInt(6));
+                        product.setPriceCents(cursor.getLong(7));
+                        lowStock.add(product);
+                        break;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (hasUncategorized) {
+            categories.add(new DashboardSnapshot.CategoryTotal(UNCATEGORIZED, uncategorized));
+        }
+        Collections.sort(categories, (a, b) -> Integer.compare(b.getQuantity(), a.getQuantity()));
+        return new DashboardSnapshot(stats, categories, stats.getLowStockCount(), lowStock);
+    }
 
-        double value = 0;
-        if (cursor.moveToFirst()) value = cursor.getDouble(0);
+    // ================= STOCK HISTORY =================
 
+    public void setSnapshotPolicy(SnapshotPolicy policy) {
+        this.snapshotPolicy = policy;
+    }
+
+    public SnapshotPolicy getSnapshotPolicy() {
+        return snapshotPolicy;
+    }
+
+    // Checkpoints stock if the snapshot policy says one is due. Costs one
+    // primary-key read when it isn't.
+    public boolean maybeTakeStockSnapshot() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + COL_STATE_LAST_TAKEN_AT + ", " +
+                COL_STATE_MOVEMENTS_SINCE + " FROM " + TABLE_SNAPSHOT_STATE +
+                " WHERE id = 1", null);
+
+        boolean due = false;
+        if (cursor.moveToFirst()) {
+            due = snapshotPolicy.isDue(cursor.getLong(0), cursor.getLong(1),
+                    System.currentTimeMillis());
+        }
         cursor.close();
-        db.close();
-        return value;
+
+        if (due) {
+            takeStockSnapshot();
+        }
+        return due;
+    }
+
+    // Records the current quantity of every product that moved since the last
+    // checkpoint. Products that didn't move are still covered by their previous
+    // snapshot, so getStockAt() never has to replay more than one interval.
+    public void takeStockSnapshot() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        long now = System.currentTimeMillis();
+
+        db.beginTransactionNonExclusive();
+        try {
+            long lastTakenAt = DatabaseUtils.longForQuery(db, "SELECT " +
+                    COL_STATE_LAST_TAKEN_AT + " FROM " + TABLE_SNAPSHOT_STATE + " WHERE id = 1", null);
+
+            db.execSQL("INSERT OR REPLACE INTO " + TABLE_STOCK_SNAPSHOTS + " (" +
+                    COL_SNAPSHOT_PRODUCT_ID + ", " +
+                    COL_SNAPSHOT_TAKEN_AT + ", " +
+                    COL_SNAPSHOT_QUANTITY + ") SELECT " +
+                    COL_PRODUCT_ID + ", ?, " + COL_PRODUCT_QUANTITY + " FROM " + TABLE_PRODUCTS +
+                    " WHERE " + COL_PRODUCT_ID + " IN (SELECT DISTINCT " + COL_TRANS_PRODUCT_ID +
+                    " FROM " + TABLE_TRANSACTIONS + " WHERE " + COL_TRANS_TIMESTAMP + " > ?)",
+                    new Object[]{now, lastTakenAt});
+
+            db.execSQL("UPDATE " + TABLE_SNAPSHOT_STATE + " SET " +
+                    COL_STATE_LAST_TAKEN_AT + " = ?, " +
+                    COL_STATE_MOVEMENTS_SINCE + " = 0 WHERE id = 1", new Object[]{now});
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Stock of one product as of timestamp: the nearest snapshot at or before it
+    // plus the movements in between. If the product has no snapshot that old (e.g.
+    // history from before snapshots existed) it works back from the next one. One
+    // statement, so the snapshot and the movements come from the same state of the
+    // data without a transaction, which here would be IMMEDIATE and block writers.
+    public int getStockAt(long productId, long timestamp) {
+        return (int) queryLong(this.getReadableDatabase(), SQL_STOCK_AT, productId, timestamp);
+    }
+
+    private void insertSnapshot(SQLiteDatabase db, long productId, long takenAt, int quantity) {
+        db.execSQL("INSERT OR REPLACE INTO " + TABLE_STOCK_SNAPSHOTS + " (" +
+                COL_SNAPSHOT_PRODUCT_ID + ", " +
+                COL_SNAPSHOT_TAKEN_AT + ", " +
+                COL_SNAPSHOT_QUANTITY + ") VALUES (?, ?, ?)",
+                new Object[]{productId, takenAt, quantity});
+    }
+
+    // ================= MOVEMENT ROLLUPS =================
+    // Analytics read daily_movements only, never the transactions ledger
+
+    // In/out totals per period across all products, oldest period first
+    public List<MovementTotal> getMovementTotals(MovementTotal.Granularity granularity,
+                                                 long from, long to) {
+        String period = periodExpression(granularity);
+        Cursor cursor = this.getReadableDatabase().rawQuery("SELECT " + period + " AS period, " +
+                "SUM(" + COL_DAILY_IN + "), SUM(" + COL_DAILY_OUT + ") FROM " + TABLE_DAILY_MOVEMENTS +
+                " WHERE " + COL_DAILY_DAY + " BETWEEN ? AND ?" +
+                " GROUP BY period ORDER BY period", dayRange(from, to));
+        return readMovementTotals(cursor, true, false);
+    }
+
+    // In/out totals per period for one product, oldest period first
+    public List<MovementTotal> getProductMovementTotals(long productId,
+                                                        MovementTotal.Granularity granularity,
+                                                        long from, long to) {
+        String[] range = dayRange(from, to);
+        String period = periodExpression(granularity);
+        Cursor cursor = this.getReadableDatabase().rawQuery("SELECT " + period + " AS period, " +
+                COL_DAILY_PRODUCT_ID + ", SUM(" + COL_DAILY_IN + "), SUM(" + COL_DAILY_OUT + ")" +
+                " FROM " + TABLE_DAILY_MOVEMENTS +
+                " WHERE " + COL_DAILY_PRODUCT_ID + " = ? AND " + COL_DAILY_DAY + " BETWEEN ? AND ?" +
+                " GROUP BY period ORDER BY period", new String[]{String.valueOf(productId), range[0], range[1]});
+        return readMovementTotals(cursor, true, true);
+    }
+
+    // Products with the most units moved (in + out) in the range, busiest first
+    public List<MovementTotal> getTopMovers(long from, long to, int limit) {
+        String[] range = dayRange(from, to);
+        Cursor cursor = this.getReadableDatabase().rawQuery("SELECT d." + COL_DAILY_PRODUCT_ID +
+                ", p." + COL_PRODUCT_NAME + ", SUM(d." + COL_DAILY_IN + ") AS total_in" +
+                ", SUM(d." + COL_DAILY_OUT + ") AS total_out" +
+                " FROM " + TABLE_DAILY_MOVEMENTS + " d LEFT JOIN " + TABLE_PRODUCTS + " p" +
+                " ON p." + COL_PRODUCT_ID + " = d." + COL_DAILY_PRODUCT_ID +
+                " WHERE d." + COL_DAILY_DAY + " BETWEEN ? AND ?" +
+                " GROUP BY d." + COL_DAILY_PRODUCT_ID +
+                " ORDER BY total_in + total_out DESC LIMIT ?",
+                new String[]{range[0], range[1], String.valueOf(limit)});
+
+        List<MovementTotal> totals = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                totals.add(new MovementTotal(null, cursor.getLong(0), cursor.getString(1),
+                        cursor.getLong(2), cursor.getLong(3)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return totals;
+    }
+
+    // Recomputes every rollup row from the ledger
+    public void rebuildMovementRollups() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            db.execSQL("DELETE FROM " + TABLE_DAILY_MOVEMENTS);
+            db.execSQL("INSERT INTO " + TABLE_DAILY_MOVEMENTS + " (" +
+                    COL_DAILY_PRODUCT_ID + ", " + COL_DAILY_DAY + ", " +
+                    COL_DAILY_IN + ", " + COL_DAILY_OUT + ", " + COL_DAILY_COUNT + ") SELECT " +
+                    COL_TRANS_PRODUCT_ID + ", " +
+                    "date(" + COL_TRANS_TIMESTAMP + " / 1000, 'unixepoch', 'localtime') AS day, " +
+                    "SUM(CASE WHEN " + COL_TRANS_TYPE + " = " + MovementType.IN.getCode() +
+                    " THEN " + COL_TRANS_QUANTITY + " ELSE 0 END), " +
+                    "SUM(CASE WHEN " + COL_TRANS_TYPE + " = " + MovementType.IN.getCode() +
+                    " THEN 0 ELSE " + COL_TRANS_QUANTITY + " END), " +
+                    "COUNT(*) FROM " + TABLE_TRANSACTIONS +
+                    " GROUP BY " + COL_TRANS_PRODUCT_ID + ", day");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static String periodExpression(MovementTotal.Granularity granularity) {
+        switch (granularity) {
+            case WEEK:
+                return "strftime('%Y-W%W', " + COL_DAILY_DAY + ")";
+            case MONTH:
+                return "substr(" + COL_DAILY_DAY + ", 1, 7)";
+            case DAY:
+            default:
+                return COL_DAILY_DAY;
+        }
+    }
+
+    // Millisecond bounds as the local-date keys the rollup is stored under
+    private static String[] dayRange(long from, long to) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        return new String[]{format.format(new Date(from)), format.format(new Date(to))};
+    }
+
+    private static List<MovementTotal> readMovementTotals(Cursor cursor, boolean hasPeriod,
+                                                          boolean hasProduct) {
+        List<MovementTotal> totals = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                int column = 0;
+                String period = hasPeriod ? cursor.getString(column++) : null;
+                long productId = hasProduct ? cursor.getLong(column++) : 0;
+                totals.add(new MovementTotal(period, productId, null,
+                        cursor.getLong(column), cursor.getLong(column + 1)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return totals;
     }
 }
@@ -0,0 +1,524 @@
+package com.example.myapplication;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Schema changes after v1. Each step moves the database up exactly one version
+// and keeps existing rows; SQLiteOpenHelper runs the whole upgrade in one transaction.
+// Steps are written against the schema as it was at that version, so they use
+// literal SQL rather than the DatabaseHelper column constants.
+final class DatabaseMigrations {
+
+    private DatabaseMigrations() {
+    }
+
+    static void migrate(SQLiteDatabase db, int fromVersion, int toVersion) {
+        for (int version = fromVersion + 1; version <= toVersion; version++) {
+            switch (version) {
+                case 2:
+                    migrateToV2(db);
+                    break;
+                case 3:
+                    migrateToV3(db);
+                    break;
+                case 4:
+                    migrateToV4(db);
+                    break;
+                case 5:
+                    migrateToV5(db);
+                    break;
+                case 6:
+                    migrateToV6(db);
+                    break;
+                case 7:
+                    migrateToV7(db);
+                    break;
+                case 8:
+                    migrateToV8(db);
+                    break;
+                case 9:
+                    migrateToV9(db);
+                    break;
+                case 10:
+                    migrateToV10(db);
+                    break;
+                case 11:
+                    migrateToV11(db);
+                    break;
+                case 12:
+                    migrateToV12(db);
+                    break;
+                default:
+                    throw new IllegalStateException("No migration to schema version " + version);
+            }
+        }
+    }
+
+    // ================= V2: SECONDARY INDEXES =================
+
+    private static void migrateToV2(SQLiteDatabase db) {
+        // Product history: WHERE product_id = ? ORDER BY timestamp DESC
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_product_time " +
+                "ON transactions(product_id, timestamp)");
+
+        // Full ledger: ORDER BY timestamp DESC
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_time " +
+                "ON transactions(timestamp)");
+
+        // Product list and search: ORDER BY name
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_products_name " +
+                "ON products(name, id)");
+
+        // Low stock: quantity <= min_stock ORDER BY quantity, filtered inside the index
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_products_quantity " +
+                "ON products(quantity, min_stock)");
+    }
+
+    // ================= V3: KEYSET PAGING =================
+
+    private static void migrateToV3(SQLiteDatabase db) {
+        // Ledger pages seek on (timestamp, id); this replaces the timestamp-only index
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_time_id " +
+                "ON transactions(timestamp, id)");
+        db.execSQL("DROP INDEX IF EXISTS idx_transactions_time");
+    }
+
+    // ================= V4: FULL-TEXT PRODUCT SEARCH =================
+
+    private static void migrateToV4(SQLiteDatabase db) {
+        // docid mirrors products.rowid; prefix= adds prefix indexes for short "ab*" terms
+        db.execSQL("CREATE VIRTUAL TABLE products_fts USING fts4(" +
+                "name, sku, category, supplier, prefix=\"2,3\")");
+
+        db.execSQL("CREATE TRIGGER products_fts_insert AFTER INSERT ON products BEGIN " +
+                "INSERT INTO products_fts(docid, name, sku, category, supplier) " +
+                "VALUES (new.rowid, new.name, new.sku, new.category, new.supplier); END");
+
+        db.execSQL("CREATE TRIGGER products_fts_update " +
+                "AFTER UPDATE OF name, sku, category, supplier ON products BEGIN " +
+                "UPDATE products_fts SET name = new.name, sku = new.sku, " +
+                "category = new.category, supplier = new.supplier " +
+                "WHERE docid = old.rowid; END");
+
+        db.execSQL("CREATE TRIGGER products_fts_delete AFTER DELETE ON products BEGIN " +
+                "DELETE FROM products_fts WHERE docid = old.rowid; END");
+
+        db.execSQL("INSERT INTO products_fts(docid, name, sku, category, supplier) " +
+                "SELECT rowid, name, sku, category, supplier FROM products");
+    }
+
+    // ================= V5: INVENTORY STATS =================
+
+    private static void migrateToV5(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE inventory_stats (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                "product_count INTEGER NOT NULL, " +
+                "item_count INTEGER NOT NULL, " +
+                "inventory_value REAL NOT NULL)");
+
+        db.execSQL("INSERT INTO inventory_stats (id, product_count, item_count, inventory_value) " +
+                "SELECT 1, COUNT(*), COALESCE(SUM(quantity), 0), " +
+                "COALESCE(SUM(quantity * price), 0) FROM products");
+
+        // Each product write applies its own delta to the single stats row
+        db.execSQL("CREATE TRIGGER inventory_stats_insert AFTER INSERT ON products BEGIN " +
+                "UPDATE inventory_stats SET " +
+                "product_count = product_count + 1, " +
+                "item_count = item_count + new.quantity, " +
+                "inventory_value = inventory_value + new.quantity * new.price " +
+                "WHERE id = 1; END");
+
+        db.execSQL("CREATE TRIGGER inventory_stats_update " +
+                "AFTER UPDATE OF quantity, price ON products BEGIN " +
+                "UPDATE inventory_stats SET " +
+                "item_count = item_count + new.quantity - old.quantity, " +
+                "inventory_value = inventory_value + new.quantity * new.price " +
+                "- old.quantity * old.price " +
+                "WHERE id = 1; END");
+
+        db.execSQL("CREATE TRIGGER inventory_stats_delete AFTER DELETE ON products BEGIN " +
+                "UPDATE inventory_stats SET " +
+                "product_count = product_count - 1, " +
+                "item_count = item_count - old.quantity, " +
+                "inventory_value = inventory_value - old.quantity * old.price " +
+                "WHERE id = 1; END");
+    }
+
+    // ================= V6: CATEGORY BREAKDOWN =================
+
+    private static void migrateToV6(SQLiteDatabase db) {
+        // Covers GROUP BY category with SUM(quantity) for the dashboard chart
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_products_category " +
+                "ON products(category, quantity)");
+    }
+
+    // ================= V7: LOW-STOCK FLAG =================
+
+    private static void migrateToV7(SQLiteDatabase db) {
+        // quantity <= min_stock compares two columns, which no index can serve,
+        // so the comparison is stored as a flag and indexed only where it is set
+        db.execSQL("ALTER TABLE products ADD COLUMN low_stock INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("UPDATE products SET low_stock = (quantity <= min_stock)");
+        db.execSQL("CREATE INDEX idx_products_low_stock ON products(quantity) WHERE low_stock = 1");
+        db.execSQL("DROP INDEX IF EXISTS idx_products_quantity");
+
+        // The flag is set inside the same statement that changes quantity or min_stock
+        db.execSQL("CREATE TRIGGER products_low_stock_insert AFTER INSERT ON products BEGIN " +
+                "UPDATE products SET low_stock = (new.quantity <= new.min_stock) " +
+                "WHERE rowid = new.rowid; END");
+
+        db.execSQL("CREATE TRIGGER products_low_stock_update " +
+                "AFTER UPDATE OF quantity, min_stock ON products BEGIN " +
+                "UPDATE products SET low_stock = (new.quantity <= new.min_stock) " +
+                "WHERE rowid = new.rowid AND low_stock <> (new.quantity <= new.min_stock); END");
+
+        // Low-stock count joins the other totals in inventory_stats
+        db.execSQL("ALTER TABLE inventory_stats ADD COLUMN low_stock_count INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("UPDATE inventory_stats SET low_stock_count = " +
+                "(SELECT COUNT(*) FROM products WHERE low_stock = 1) WHERE id = 1");
+
+        db.execSQL("CREATE TRIGGER inventory_stats_low_stock " +
+                "AFTER UPDATE OF low_stock ON products BEGIN " +
+                "UPDATE inventory_stats SET " +
+                "low_stock_count = low_stock_count + new.low_stock - old.low_stock " +
+                "WHERE id = 1; END");
+
+        db.execSQL("DROP TRIGGER inventory_stats_delete");
+        db.execSQL("CREATE TRIGGER inventory_stats_delete AFTER DELETE ON products BEGIN " +
+                "UPDATE inventory_stats SET " +
+                "product_count = product_count - 1, " +
+                "item_count = item_count - old.quantity, " +
+                "inventory_value = inventory_value - old.quantity * old.price, " +
+                "low_stock_count = low_stock_count - old.low_stock " +
+                "WHERE id = 1; END");
+    }
+
+    // ================= V8: STOCK SNAPSHOTS =================
+
+    private static final String NOW_MILLIS =
+            "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+    private static void migrateToV8(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE stock_snapshots (" +
+                "product_id TEXT NOT NULL, " +
+                "taken_at INTEGER NOT NULL, " +
+                "quantity INTEGER NOT NULL, " +
+                "PRIMARY KEY (product_id, taken_at)) WITHOUT ROWID");
+
+        db.execSQL("CREATE TABLE snapshot_state (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                "last_taken_at INTEGER NOT NULL, " +
+                "movements_since INTEGER NOT NULL)");
+
+        // Existing products start from their quantity as of the upgrade
+        db.execSQL("INSERT INTO stock_snapshots (product_id, taken_at, quantity) " +
+                "SELECT id, " + NOW_MILLIS + ", quantity FROM products");
+        db.execSQL("INSERT INTO snapshot_state (id, last_taken_at, movements_since) " +
+                "VALUES (1, " + NOW_MILLIS + ", 0)");
+
+        // A new product's quantity is its first checkpoint
+        db.execSQL("CREATE TRIGGER stock_snapshot_product_insert AFTER INSERT ON products BEGIN " +
+                "INSERT OR REPLACE INTO stock_snapshots (product_id, taken_at, quantity) " +
+                "VALUES (new.id, " + NOW_MILLIS + ", new.quantity); END");
+
+        db.execSQL("CREATE TRIGGER stock_snapshot_product_delete AFTER DELETE ON products BEGIN " +
+                "DELETE FROM stock_snapshots WHERE product_id = old.id; END");
+
+        db.execSQL("CREATE TRIGGER snapshot_movement_count AFTER INSERT ON transactions BEGIN " +
+                "UPDATE snapshot_state SET movements_since = movements_since + 1 " +
+                "WHERE id = 1; END");
+    }
+
+    // ================= V9: DAILY MOVEMENT ROLLUPS =================
+
+    private static final String NEW_DAY = "date(new.timestamp / 1000, 'unixepoch', 'localtime')";
+    private static final String OLD_DAY = "date(old.timestamp / 1000, 'unixepoch', 'localtime')";
+
+    private static void migrateToV9(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE daily_movements (" +
+                "product_id TEXT NOT NULL, " +
+                "day TEXT NOT NULL, " +
+                "qty_in INTEGER NOT NULL DEFAULT 0, " +
+                "qty_out INTEGER NOT NULL DEFAULT 0, " +
+                "movement_count INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (product_id, day)) WITHOUT ROWID");
+
+        // Range scans over all products for a period
+        db.execSQL("CREATE INDEX idx_daily_movements_day ON daily_movements(day)");
+
+        db.execSQL("INSERT INTO daily_movements " +
+                "(product_id, day, qty_in, qty_out, movement_count) " +
+                "SELECT product_id, date(timestamp / 1000, 'unixepoch', 'localtime') AS day, " +
+                "SUM(CASE WHEN type = 'in' THEN quantity ELSE 0 END), " +
+                "SUM(CASE WHEN type = 'in' THEN 0 ELSE quantity END), " +
+                "COUNT(*) FROM transactions GROUP BY product_id, day");
+
+        db.execSQL("CREATE TRIGGER daily_movements_insert AFTER INSERT ON transactions BEGIN " +
+                "INSERT OR IGNORE INTO daily_movements (product_id, day) " +
+                "VALUES (new.product_id, " + NEW_DAY + "); " +
+                "UPDATE daily_movements SET " +
+                "qty_in = qty_in + CASE WHEN new.type = 'in' THEN new.quantity ELSE 0 END, " +
+                "qty_out = qty_out + CASE WHEN new.type = 'in' THEN 0 ELSE new.quantity END, " +
+                "movement_count = movement_count + 1 " +
+                "WHERE product_id = new.product_id AND day = " + NEW_DAY + "; END");
+
+        db.execSQL("CREATE TRIGGER daily_movements_delete AFTER DELETE ON transactions BEGIN " +
+                "UPDATE daily_movements SET " +
+                "qty_in = qty_in - CASE WHEN old.type = 'in' THEN old.quantity ELSE 0 END, " +
+                "qty_out = qty_out - CASE WHEN old.type = 'in' THEN 0 ELSE old.quantity END, " +
+                "movement_count = movement_count - 1 " +
+                "WHERE product_id = old.product_id AND day = " + OLD_DAY + "; " +
+                "DELETE FROM daily_movements WHERE product_id = old.product_id " +
+                "AND day = " + OLD_DAY + " AND movement_count <= 0; END");
+    }
+
+    // ================= V10: INTEGER PRIMARY KEYS =================
+
+    // Before rebuilding tables: drops the triggers on them and returns the CREATE
+    // statements of their indexes and triggers by name, indexes first, to run again
+    // once the new tables are in place
+    private static Map<String, String> detachSchema(SQLiteDatabase db, String... tables) {
+        Map<String, String> schema = new LinkedHashMap<>();
+        Cursor cursor = db.rawQuery("SELECT type, name, sql FROM sqlite_master " +
+                "WHERE type IN ('index', 'trigger') AND sql IS NOT NULL " +
+                "AND tbl_name IN ('" + TextUtils.join("', '", tables) + "') " +
+                "ORDER BY type = 'trigger'", null);
+        try {
+            while (cursor.moveToNext()) {
+                if ("trigger".equals(cursor.getString(0))) {
+                    db.execSQL("DROP TRIGGER " + cursor.getString(1));
+                }
+                schema.put(cursor.getString(1), cursor.getString(2));
+            }
+        } finally {
+            cursor.close();
+        }
+        return schema;
+    }
+
+    // True when a TEXT id is the canonical spelling of an integer ("1700000000000",
+    // not "007" or "bench-1"), so it converts to an INTEGER id without colliding
+    private static String isIntegerId(String column) {
+        return column + " = CAST(CAST(" + column + " AS INTEGER) AS TEXT)";
+    }
+
+    // Products and transactions move from TEXT ids to INTEGER PRIMARY KEY (an alias
+    // for the rowid, so no separate primary-key index). Ids written by the app were
+    // always currentTimeMillis() strings and keep their value; anything else gets a
+    // new id, and product references in the other tables are remapped to match.
+    // SQLite can't change a column type in place, so each table is rebuilt and the
+    // indexes and triggers defined on it are recreated from their stored SQL.
+    private static void migrateToV10(SQLiteDatabase db) {
+        Map<String, String> schema = detachSchema(db,
+                "products", "transactions", "stock_snapshots", "daily_movements");
+
+        // Old product id -> new product id, including ids only left in the other tables
+        db.execSQL("CREATE TEMP TABLE product_ids (old_id TEXT PRIMARY KEY, new_id INTEGER)");
+        db.execSQL("INSERT OR IGNORE INTO product_ids (old_id, new_id) " +
+                "SELECT id, CASE WHEN " + isIntegerId("id") + " THEN CAST(id AS INTEGER) END FROM (" +
+                "SELECT id FROM products UNION SELECT product_id FROM transactions " +
+                "UNION SELECT product_id FROM stock_snapshots " +
+                "UNION SELECT product_id FROM daily_movements)");
+        db.execSQL("UPDATE product_ids SET new_id = " +
+                "(SELECT COALESCE(MAX(new_id), 0) FROM product_ids) + rowid WHERE new_id IS NULL");
+
+        db.execSQL("CREATE TABLE products_v10 (" +
+                "id INTEGER PRIMARY KEY, " +
+                "name TEXT NOT NULL, " +
+                "sku TEXT UNIQUE NOT NULL, " +
+                "category TEXT, " +
+                "quantity INTEGER DEFAULT 0, " +
+                "min_stock INTEGER DEFAULT 0, " +
+                "price REAL DEFAULT 0, " +
+                "supplier TEXT, " +
+                "created_at INTEGER, " +
+                "low_stock INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("INSERT INTO products_v10 (id, name, sku, category, quantity, min_stock, " +
+                "price, supplier, created_at, low_stock) " +
+                "SELECT m.new_id, p.name, p.sku, p.category, p.quantity, p.min_stock, " +
+                "p.price, p.supplier, p.created_at, p.low_stock " +
+                "FROM products p JOIN product_ids m ON m.old_id = p.id");
+
+        db.execSQL("CREATE TABLE transactions_v10 (" +
+                "id INTEGER PRIMARY KEY, " +
+                "product_id INTEGER NOT NULL, " +
+                "product_name TEXT, " +
+                "type TEXT NOT NULL, " +
+                "quantity INTEGER NOT NULL, " +
+                "notes TEXT, " +
+                "timestamp INTEGER, " +
+                "FOREIGN KEY(product_id) REFERENCES products(id))");
+        // Integer ids first, so the ids SQLite assigns to the rest can't be taken later
+        db.execSQL("INSERT INTO transactions_v10 (id, product_id, product_name, type, " +
+                "quantity, notes, timestamp) " +
+                "SELECT CASE WHEN " + isIntegerId("t.id") + " THEN CAST(t.id AS INTEGER) END, " +
+                "m.new_id, t.product_name, t.type, t.quantity, t.notes, t.timestamp " +
+                "FROM transactions t JOIN product_ids m ON m.old_id = t.product_id " +
+                "ORDER BY " + isIntegerId("t.id") + " DESC, t.timestamp");
+
+        db.execSQL("CREATE TABLE stock_snapshots_v10 (" +
+                "product_id INTEGER NOT NULL, " +
+                "taken_at INTEGER NOT NULL, " +
+                "quantity INTEGER NOT NULL, " +
+                "PRIMARY KEY (product_id, taken_at)) WITHOUT ROWID");
+        db.execSQL("INSERT INTO stock_snapshots_v10 (product_id, taken_at, quantity) " +
+                "SELECT m.new_id, s.taken_at, s.quantity " +
+                "FROM stock_snapshots s JOIN product_ids m ON m.old_id = s.product_id");
+
+        db.execSQL("CREATE TABLE daily_movements_v10 (" +
+                "product_id INTEGER NOT NULL, " +
+                "day TEXT NOT NULL, " +
+                "qty_in INTEGER NOT NULL DEFAULT 0, " +
+                "qty_out INTEGER NOT NULL DEFAULT 0, " +
+                "movement_count INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (product_id, day)) WITHOUT ROWID");
+        db.execSQL("INSERT INTO daily_movements_v10 (product_id, day, qty_in, qty_out, movement_count) " +
+                "SELECT m.new_id, d.day, d.qty_in, d.qty_out, d.movement_count " +
+                "FROM daily_movements d JOIN product_ids m ON m.old_id = d.product_id");
+
+        db.execSQL("DROP TABLE products");
+        db.execSQL("DROP TABLE transactions");
+        db.execSQL("DROP TABLE stock_snapshots");
+        db.execSQL("DROP TABLE daily_movements");
+        db.execSQL("DROP TABLE product_ids");
+        db.execSQL("ALTER TABLE products_v10 RENAME TO products");
+        db.execSQL("ALTER TABLE transactions_v10 RENAME TO transactions");
+        db.execSQL("ALTER TABLE stock_snapshots_v10 RENAME TO stock_snapshots");
+        db.execSQL("ALTER TABLE daily_movements_v10 RENAME TO daily_movements");
+
+        for (String sql : schema.values()) {
+            db.execSQL(sql);
+        }
+
+        // The FTS docids pointed at the old rowids
+        db.execSQL("DELETE FROM products_fts");
+        db.execSQL("INSERT INTO products_fts(docid, name, sku, category, supplier) " +
+                "SELECT id, name, sku, category, supplier FROM products");
+    }
+
+    // ================= V11: CENTS AND TYPE CODES =================
+
+    // products.price (REAL) becomes price_cents (INTEGER) and transactions.type
+    // goes from "in" / "out" to the MovementType codes 1 / 2, so valuation sums are
+    // exact integer arithmetic. The stats value moves to cents as well. Triggers
+    // that read price or type are written again; the rest are recreated as they were.
+    private static void migrateToV11(SQLiteDatabase db) {
+        Map<String, String> schema = detachSchema(db, "products", "transactions");
+        schema.remove("inventory_stats_insert");
+        schema.remove("inventory_stats_update");
+        schema.remove("inventory_stats_delete");
+        schema.remove("daily_movements_insert");
+        schema.remove("daily_movements_delete");
+
+        db.execSQL("CREATE TABLE products_v11 (" +
+                "id INTEGER PRIMARY KEY, " +
+                "name TEXT NOT NULL, " +
+                "sku TEXT UNIQUE NOT NULL, " +
+                "category TEXT, " +
+                "quantity INTEGER DEFAULT 0, " +
+                "min_stock INTEGER DEFAULT 0, " +
+                "price_cents INTEGER NOT NULL DEFAULT 0, " +
+                "supplier TEXT, " +
+                "created_at INTEGER, " +
+                "low_stock INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("INSERT INTO products_v11 (id, name, sku, category, quantity, min_stock, " +
+                "price_cents, supplier, created_at, low_stock) " +
+                "SELECT id, name, sku, category, quantity, min_stock, " +
+                "CAST(ROUND(COALESCE(price, 0) * 100) AS INTEGER), supplier, created_at, low_stock " +
+                "FROM products");
+
+        db.execSQL("CREATE TABLE transactions_v11 (" +
+                "id INTEGER PRIMARY KEY, " +
+                "product_id INTEGER NOT NULL, " +
+                "product_name TEXT, " +
+                "type INTEGER NOT NULL, " +
+                "quantity INTEGER NOT NULL, " +
+                "notes TEXT, " +
+                "timestamp INTEGER, " +
+                "FOREIGN KEY(product_id) REFERENCES products(id))");
+        // Anything but "in" always counted as a stock-out
+        db.execSQL("INSERT INTO transactions_v11 (id, product_id, product_name, type, " +
+                "quantity, notes, timestamp) " +
+                "SELECT id, product_id, product_name, CASE WHEN type = 'in' THEN 1 ELSE 2 END, " +
+                "quantity, notes, timestamp FROM transactions");
+
+        db.execSQL("CREATE TABLE inventory_stats_v11 (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                "product_count INTEGER NOT NULL, " +
+                "item_count INTEGER NOT NULL, " +
+                "value_cents INTEGER NOT NULL, " +
+                "low_stock_count INTEGER NOT NULL DEFAULT 0)");
+
+        db.execSQL("DROP TABLE products");
+        db.execSQL("DROP TABLE transactions");
+        db.execSQL("DROP TABLE inventory_stats");
+        db.execSQL("ALTER TABLE products_v11 RENAME TO products");
+        db.execSQL("ALTER TABLE transactions_v11 RENAME TO transactions");
+        db.execSQL("ALTER TABLE inventory_stats_v11 RENAME TO inventory_stats");
+
+        // Recounted rather than converted, so the value starts out exact
+        db.execSQL("INSERT INTO inventory_stats (id, product_count, item_count, value_cents, " +
+                "low_stock_count) SELECT 1, COUNT(*), COALESCE(SUM(quantity), 0), " +
+                "COALESCE(SUM(quantity * price_cents), 0), COALESCE(SUM(low_stock), 0) FROM products");
+
+        for (String sql : schema.values()) {
+            db.execSQL(sql);
+        }
+
+        db.execSQL("CREATE TRIGGER inventory_stats_insert AFTER INSERT ON products BEGIN " +
+                "UPDATE inventory_stats SET " +
+                "product_count = product_count + 1, " +
+                "item_count = item_count + new.quantity, " +
+                "value_cents = value_cents + new.quantity * new.price_cents " +
+                "WHERE id = 1; END");
+
+        db.execSQL("CREATE TRIGGER inventory_stats_update " +
+                "AFTER UPDATE OF quantity, price_cents ON products BEGIN " +
+                "UPDATE inventory_stats SET " +
+                "item_count = item_count + new.quantity - old.quantity, " +
+                "value_cents = value_cents + new.quantity * new.price_cents " +
+                "- old.quantity * old.price_cents " +
+                "WHERE id = 1; END");
+
+        db.execSQL("CREATE TRIGGER inventory_stats_delete AFTER DELETE ON products BEGIN " +
+                "UPDATE inventory_stats SET " +
+                "product_count = product_count - 1, " +
+                "item_count = item_count - old.quantity, " +
+                "value_cents = value_cents - old.quantity * old.price_cents, " +
+                "low_stock_count = low_stock_count - old.low_stock " +
+                "WHERE id = 1; END");
+
+        db.execSQL("CREATE TRIGGER daily_movements_insert AFTER INSERT ON transactions BEGIN " +
+                "INSERT OR IGNORE INTO daily_movements (product_id, day) " +
+                "VALUES (new.product_id, " + NEW_DAY + "); " +
+                "UPDATE daily_movements SET " +
+                "qty_in = qty_in + CASE WHEN new.type = 1 THEN new.quantity ELSE 0 END, " +
+                "qty_out = qty_out + CASE WHEN new.type = 1 THEN 0 ELSE new.quantity END, " +
+                "movement_count = movement_count + 1 " +
+                "WHERE product_id = new.product_id AND day = " + NEW_DAY + "; END");
+
+        db.execSQL("CREATE TRIGGER daily_movements_delete AFTER DELETE ON transactions BEGIN " +
+                "UPDATE daily_movements SET " +
+                "qty_in = qty_in - CASE WHEN old.type = 1 THEN old.quantity ELSE 0 END, " +
+                "qty_out = qty_out - CASE WHEN old.type = 1 THEN 0 ELSE old.quantity END, " +
+                "movement_count = movement_count - 1 " +
+                "WHERE product_id = old.product_id AND day = " + OLD_DAY + "; " +
+                "DELETE FROM daily_movements WHERE product_id = old.product_id " +
+                "AND day = " + OLD_DAY + " AND movement_count <= 0; END");
+    }
+
+    // ================= V12: CONDITIONAL LOW-STOCK INSERT TRIGGER =================
+
+    // The insert trigger rewrote every new row, doubling the writes of a bulk
+    // import. Like the update trigger, it now only touches rows whose flag is wrong.
+    private static void migrateToV12(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS products_low_stock_insert");
+        db.execSQL("CREATE TRIGGER products_low_stock_insert AFTER INSERT ON products BEGIN " +
+                "UPDATE products SET low_stock = (new.quantity <= new.min_stock) " +
+                "WHERE rowid = new.rowid AND (new.quantity <= new.min_stock) <> new.low_stock; END");
+    }
+}
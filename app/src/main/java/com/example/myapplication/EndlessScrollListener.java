@@ -0,0 +1,49 @@
+package com.example.myapplication;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+// Asks for the next page once the user scrolls within PREFETCH_DISTANCE rows of the end
+public class EndlessScrollListener extends RecyclerView.OnScrollListener {
+
+    private static final int PREFETCH_DISTANCE = 15;
+
+    public interface OnLoadMoreListener {
+        // Starts loading the next page; call reset() once the list has been shown again
+        void onLoadMore();
+    }
+
+    private final OnLoadMoreListener listener;
+    private boolean hasMore = true;
+    private boolean loading;
+
+    public EndlessScrollListener(OnLoadMoreListener listener) {
+        this.listener = listener;
+    }
+
+    // Call whenever the list is shown anew: the first page (re)loaded, a page
+    // asked for by onLoadMore() appended, or that page failed
+    public void reset(boolean hasMore) {
+        this.hasMore = hasMore;
+        this.loading = false;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (!hasMore || loading) return;
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager == null) return;
+
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible < layoutManager.getItemCount() - PREFETCH_DISTANCE) return;
+
+        // Adapter changes aren't allowed inside a scroll callback
+        loading = true;
+        recyclerView.post(() -> {
+            if (!loading) return;
+            listener.onLoadMore();
+        });
+    }
+}
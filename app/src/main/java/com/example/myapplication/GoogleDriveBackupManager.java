@@ -1,5 +1,6 @@
 package com.example.myapplication;
 
+import android.accounts.Account;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
@@ -24,6 +25,8 @@ import java.util.Collections;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
+// Nothing Google is built up front: the sign-in client is made on the first
+// sign-in or sign-out, and the Drive client once per signed-in account.
 public class GoogleDriveBackupManager {
 
     private static final String BACKUP_FOLDER_NAME = "InventoryProBackup";
@@ -31,25 +34,29 @@ public class GoogleDriveBackupManager {
     private static final Executor executor = Executors.newSingleThreadExecutor();
 
     private Context context;
-    private Drive driveService;
+    private volatile Drive driveService;
+    // The account driveService was built for
+    private Account driveAccount;
     private GoogleSignInClient googleSignInClient;
 
     public GoogleDriveBackupManager(Context context) {
         this.context = context;
-        initializeGoogleSignIn();
     }
 
-    private void initializeGoogleSignIn() {
-        GoogleSignInOptions signInOptions = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
-                .requestEmail()
-                .requestScopes(new Scope(DriveScopes.DRIVE_FILE))
-                .build();
+    private GoogleSignInClient getSignInClient() {
+        if (googleSignInClient == null) {
+            GoogleSignInOptions signInOptions = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
+                    .requestEmail()
+                    .requestScopes(new Scope(DriveScopes.DRIVE_FILE))
+                    .build();
 
-        googleSignInClient = GoogleSignIn.getClient(context, signInOptions);
+            googleSignInClient = GoogleSignIn.getClient(context, signInOptions);
+        }
+        return googleSignInClient;
     }
 
     public Intent getSignInIntent() {
-        return googleSignInClient.getSignInIntent();
+        return getSignInClient().getSignInIntent();
     }
 
     public void handleSignInResult(Intent data, SignInCallback callback) {
@@ -62,6 +69,11 @@ public class GoogleDriveBackupManager {
     }
 
     private void initializeDriveService(GoogleSignInAccount account) {
+        if (driveService != null && account.getAccount() != null
+                && account.getAccount().equals(driveAccount)) {
+            return;
+        }
+
         GoogleAccountCredential credential = GoogleAccountCredential.usingOAuth2(
                 context, Collections.singleton(DriveScopes.DRIVE_FILE));
         credential.setSelectedAccount(account.getAccount());
@@ -72,8 +84,10 @@ public class GoogleDriveBackupManager {
                 credential)
                 .setApplicationName("Inventory Pro")
                 .build();
+        driveAccount = account.getAccount();
     }
 
+    // Builds the Drive client only if there is none yet for this account
     public boolean isSignedIn() {
         GoogleSignInAccount account = GoogleSignIn.getLastSignedInAccount(context);
         if (account != null) {
@@ -84,8 +98,12 @@ public class GoogleDriveBackupManager {
     }
 
     public void signOut(SignOutCallback callback) {
-        googleSignInClient.signOut()
-                .addOnSuccessListener(aVoid -> callback.onSuccess())
+        getSignInClient().signOut()
+                .addOnSuccessListener(aVoid -> {
+                    driveService = null;
+                    driveAccount = null;
+                    callback.onSuccess();
+                })
                 .addOnFailureListener(e -> callback.onFailure(e.getMessage()));
     }
 
@@ -0,0 +1,57 @@
+package com.example.myapplication;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 64-bit ids for products and transactions: the current time in milliseconds
+// shifted left by SEQUENCE_BITS, plus a counter for ids taken in the same
+// millisecond. Ids only ever increase, across threads and even if the clock
+// steps back, so inserts always append to the end of the primary-key b-tree.
+public final class IdGenerator {
+
+    // 4096 ids per millisecond before the generator runs ahead of the clock
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final AtomicLong last = new AtomicLong();
+
+    private IdGenerator() {
+    }
+
+    public static long nextId() {
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        while (true) {
+            long previous = last.get();
+            long next = Math.max(now, previous + 1);
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    // Keeps later ids above one that is already stored (called with the largest
+    // id in the database when it is opened)
+    public static void advancePast(long id) {
+        while (true) {
+            long previous = last.get();
+            if (previous >= id || last.compareAndSet(previous, id)) {
+                return;
+            }
+        }
+    }
+
+    // Ids are written to backups as strings, the same as the old TEXT ids were
+    public static String toString(long id) {
+        return Long.toString(id);
+    }
+
+    // Null if the string isn't a plain integer id
+    public static Long parse(String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(id.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
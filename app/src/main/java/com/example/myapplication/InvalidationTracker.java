@@ -0,0 +1,65 @@
+package com.example.myapplication;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Writes report the tables they changed, observers hear about the tables they
+// watch. Changes are collected for COALESCE_MS and then delivered together on
+// the main thread, so a burst of writes (an import, a few quick edits) reaches
+// each observer once.
+public final class InvalidationTracker {
+
+    private static final long COALESCE_MS = 50;
+
+    public interface Observer {
+        // Main thread; tables holds the watched tables that changed since the last call
+        void onInvalidated(Set<String> tables);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<Observer, Set<String>> observers = new ConcurrentHashMap<>();
+    private final Set<String> pending = new HashSet<>();
+    private boolean scheduled;
+
+    public void addObserver(Observer observer, String... tables) {
+        observers.put(observer, new HashSet<>(Arrays.asList(tables)));
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    // Any thread
+    public void notifyChanged(String... tables) {
+        synchronized (pending) {
+            Collections.addAll(pending, tables);
+            if (scheduled) return;
+            scheduled = true;
+        }
+        mainHandler.postDelayed(this::dispatch, COALESCE_MS);
+    }
+
+    private void dispatch() {
+        Set<String> changed;
+        synchronized (pending) {
+            changed = new HashSet<>(pending);
+            pending.clear();
+            scheduled = false;
+        }
+
+        for (Map.Entry<Observer, Set<String>> entry : observers.entrySet()) {
+            Set<String> hit = new HashSet<>(entry.getValue());
+            hit.retainAll(changed);
+            if (!hit.isEmpty()) {
+                entry.getKey().onInvalidated(hit);
+            }
+        }
+    }
+}
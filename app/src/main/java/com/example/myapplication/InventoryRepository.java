@@ -0,0 +1,411 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The one entry point the UI and backups use for inventory data. Products read
+// through it are kept in a bounded cache by id and by SKU; product writes go to
+// the database first and then straight into the cache. Cached products are never
+// handed out directly, callers always get their own copy. Every write that
+// changed something reports its tables, which reruns the live queries on them.
+public final class InventoryRepository {
+
+    private static final String TAG = "InventoryRepository";
+
+    public static final int DEFAULT_CACHE_SIZE = 2000;
+
+    private static volatile InventoryRepository instance;
+
+    private final DatabaseHelper db;
+    private final LruCache<Long, Product> byId;
+    private final Map<String, Long> idBySku = new HashMap<>();
+    private final InvalidationTracker tracker = new InvalidationTracker();
+    private final ProductSearch productSearch;
+    private final ProductIndex productIndex = new ProductIndex();
+    private final AtomicBoolean warmedUp = new AtomicBoolean();
+    // Where the browsing lists read their pages. A stale list reruns the queries
+    // on products, so its replacement is on the way even if no write reported them.
+    private final PagedProductList.Source productPages = new PagedProductList.Source() {
+        @Override
+        public long generation() {
+            return currentGeneration();
+        }
+
+        @Override
+        public List<Product> read(Product after, int offset, int limit) {
+            return after != null ? db.getProductsPage(after, limit) : db.getProductsAt(offset, limit);
+        }
+
+        @Override
+        public void onStale() {
+            tracker.notifyChanged(DatabaseHelper.TABLE_PRODUCTS);
+        }
+    };
+    // Bumped by writes that can add or remove transactions anywhere but at the
+    // newest end of the ledger; screens holding older rows read them again
+    private final AtomicLong ledgerGeneration = new AtomicLong();
+
+    // Bumped by every write. A read only fills the cache if no write ran while it
+    // was in the database, so it can't put back a row a write has just replaced.
+    private long generation;
+    // Every product is cached (getAllProducts() loaded them and none was evicted since)
+    private boolean complete;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static InventoryRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (InventoryRepository.class) {
+                if (instance == null) {
+                    instance = new InventoryRepository(DatabaseHelper.getInstance(context));
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Also for benchmarks on a database of their own
+    InventoryRepository(DatabaseHelper db) {
+        this.db = db;
+        this.productSearch = new ProductSearch(db);
+        this.byId = new LruCache<Long, Product>(DEFAULT_CACHE_SIZE) {
+            @Override
+            protected void entryRemoved(boolean evicted, Long id, Product oldValue, Product newValue) {
+                String sku = oldValue.getSku();
+                boolean skuChanged = newValue == null || !TextUtils.equals(sku, newValue.getSku());
+                if (skuChanged && id.equals(idBySku.get(sku))) {
+                    idBySku.remove(sku);
+                }
+                if (evicted) {
+                    complete = false;
+                }
+            }
+        };
+    }
+
+    // ================= PRODUCTS =================
+
+    public Product getProduct(long productId) {
+        long seen;
+        synchronized (this) {
+            Product cached = byId.get(productId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return new Product(cached);
+            }
+            seen = generation;
+        }
+        misses.incrementAndGet();
+        Product product = db.getProduct(productId);
+        if (product != null) {
+            cacheIfUnchanged(seen, Collections.singletonList(product));
+        }
+        return product;
+    }
+
+    public Product getProductBySku(String sku) {
+        long seen;
+        synchronized (this) {
+            Long productId = idBySku.get(sku);
+            Product cached = productId == null ? null : byId.get(productId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return new Product(cached);
+            }
+            seen = generation;
+        }
+        misses.incrementAndGet();
+        Product product = db.getProductBySku(sku);
+        if (product != null) {
+            cacheIfUnchanged(seen, Collections.singletonList(product));
+        }
+        return product;
+    }
+
+    // Served from memory once the whole catalog fits in the cache
+    public List<Product> getAllProducts() {
+        long seen;
+        synchronized (this) {
+            if (complete) {
+                hits.incrementAndGet();
+                List<Product> products = new ArrayList<>(byId.size());
+                for (Product cached : byId.snapshot().values()) {
+                    products.add(new Product(cached));
+                }
+                // Same order as the SQL: name, then id
+                Collections.sort(products, Comparator.comparing(Product::getName)
+                        .thenComparingLong(Product::getId));
+                return products;
+            }
+            seen = generation;
+        }
+        misses.incrementAndGet();
+        List<Product> products = db.getAllProducts();
+        synchronized (this) {
+            if (generation == seen && products.size() <= byId.maxSize()) {
+                for (Product product : products) {
+                    put(product);
+                }
+                complete = true;
+            }
+        }
+        return products;
+    }
+
+    public List<Product> getProductsPage(Product after, int limit) {
+        long seen = currentGeneration();
+        List<Product> page = db.getProductsPage(after, limit);
+        cacheIfUnchanged(seen, page);
+        return page;
+    }
+
+    // The whole catalog for browsing, read a page at a time as it is shown. Rows
+    // aren't copied into the cache, there may be far more of them than it holds.
+    // Reads the first page on the calling thread; the caller closes the list.
+    public PagedProductList openProductList() {
+        long seen = currentGeneration();
+        int count = db.countProducts();
+        return new PagedProductList(productPages, seen, count,
+                db.getProductsPage(null, PagedProductList.PAGE_SIZE));
+    }
+
+    public List<Product> searchProducts(String query) {
+        long seen = currentGeneration();
+        List<Product> results = db.searchProducts(query);
+        cacheIfUnchanged(seen, results);
+        return results;
+    }
+
+    // Search as you type: requests come from getProductSearch().newRequest()
+    public ProductSearch.Result search(ProductSearch.Request request) {
+        long seen = currentGeneration();
+        ProductSearch.Result result = productSearch.run(request, seen);
+        cacheIfUnchanged(seen, result.getProducts());
+        return result;
+    }
+
+    public ProductSearch getProductSearch() {
+        return productSearch;
+    }
+
+    // ================= STARTUP =================
+
+    // Opens the database and loads the product index, off the main thread, so the
+    // first screen's queries find both ready. Only the first call does anything.
+    public void warmUp() {
+        if (!warmedUp.compareAndSet(false, true)) return;
+        StartupTracer tracer = StartupTracer.getInstance();
+        StartupTracer.Section open = tracer.begin("db.open");
+        db.getWritableDatabase();
+        open.end();
+
+        StartupTracer.Section index = tracer.begin("index.load");
+        loadProductIndex();
+        index.end();
+    }
+
+    // ================= PRODUCT INDEX =================
+
+    // Reads every product's name and SKU into the in-memory index; call once at
+    // startup, off the main thread. Writes through the repository keep it current.
+    public void loadProductIndex() {
+        long start = System.nanoTime();
+        productIndex.load(db);
+        Log.i(TAG, "Product index loaded in " + (System.nanoTime() - start) / 1_000_000 + " ms: "
+                + productIndex.getMemoryReport());
+    }
+
+    // The best few products for a picker: from memory once the index is loaded,
+    // from the SQL search before that
+    public List<Product> lookupProducts(String query, int limit) {
+        if (!productIndex.isLoaded()) {
+            return db.searchProducts(query, limit, null);
+        }
+        long[] ids = productIndex.search(query, limit);
+        List<Product> products = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Product product = getProduct(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    public ProductIndex getProductIndex() {
+        return productIndex;
+    }
+
+    public long addProduct(Product product) {
+        long result = db.addProduct(product);
+        synchronized (this) {
+            generation++;
+            if (result != -1) {
+                put(product);
+            }
+        }
+        if (result != -1) {
+            productIndex.put(product.getId(), product.getName(), product.getSku());
+            tracker.notifyChanged(DatabaseHelper.TABLE_PRODUCTS);
+        }
+        return result;
+    }
+
+    public int updateProduct(Product product) {
+        int result = db.updateProduct(product);
+        synchronized (this) {
+            generation++;
+            if (result > 0) {
+                put(product);
+            } else {
+                byId.remove(product.getId());
+            }
+        }
+        if (result > 0) {
+            productIndex.put(product.getId(), product.getName(), product.getSku());
+            tracker.notifyChanged(DatabaseHelper.TABLE_PRODUCTS);
+        }
+        return result;
+    }
+
+    public void deleteProduct(long productId) {
+        db.deleteProduct(productId);
+        synchronized (this) {
+            generation++;
+            byId.remove(productId);
+        }
+        productIndex.remove(productId);
+        ledgerGeneration.incrementAndGet();
+        tracker.notifyChanged(DatabaseHelper.TABLE_PRODUCTS, DatabaseHelper.TABLE_TRANSACTIONS);
+    }
+
+    // Rows that were skipped as duplicates aren't known here, so the cache starts over
+    public BulkInsertResult addProducts(Iterable<Product> products) {
+        BulkInsertResult result = db.addProducts(products);
+        invalidateAll();
+        if (result.getRowsInserted() > 0) {
+            // Skipped duplicates aren't known here either
+            productIndex.load(db);
+            tracker.notifyChanged(DatabaseHelper.TABLE_PRODUCTS);
+        }
+        return result;
+    }
+
+    // ================= TRANSACTIONS =================
+
+    // The movement changes quantity in SQL, the cached product gets the same delta
+    public Transaction recordMovement(long productId, MovementType type, int quantity, String notes) {
+        Transaction transaction = db.recordMovement(productId, type, quantity, notes);
+        synchronized (this) {
+            generation++;
+            Product cached = transaction == null ? null : byId.get(productId);
+            if (cached != null) {
+                cached.setQuantity(cached.getQuantity()
+                        + (type == MovementType.IN ? quantity : -quantity));
+            }
+        }
+        if (transaction != null) {
+            tracker.notifyChanged(DatabaseHelper.TABLE_PRODUCTS, DatabaseHelper.TABLE_TRANSACTIONS);
+        }
+        return transaction;
+    }
+
+    public List<Transaction> getAllTransactions() {
+        return db.getAllTransactions();
+    }
+
+    public List<Transaction> getTransactionsPage(Transaction after, int limit) {
+        return db.getTransactionsPage(after, limit);
+    }
+
+    // Changes whenever transactions may have been added or removed other than by
+    // new movements, which only ever appear at the top of the ledger
+    public long getLedgerGeneration() {
+        return ledgerGeneration.get();
+    }
+
+    public BulkInsertResult addTransactions(Iterable<Transaction> transactions) {
+        BulkInsertResult result = db.addTransactions(transactions);
+        if (result.getRowsInserted() > 0) {
+            // Imported rows carry their own timestamps and can land anywhere
+            ledgerGeneration.incrementAndGet();
+            tracker.notifyChanged(DatabaseHelper.TABLE_TRANSACTIONS);
+        }
+        return result;
+    }
+
+    // ================= DASHBOARD =================
+
+    public DashboardSnapshot getDashboardSnapshot(int lowStockLimit) {
+        return db.getDashboardSnapshot(lowStockLimit);
+    }
+
+    // ================= LIVE QUERIES =================
+
+    // query as LiveData, rerun after each burst of changes to tables; the caller closes it
+    public <T> LiveQuery<T> liveQuery(QueryExecutor.Query<T> query, String... tables) {
+        return new LiveQuery<>(tracker, query, tables);
+    }
+
+    // ================= CACHE =================
+
+    // The row may still exist, so the cache no longer holds every product
+    public synchronized void invalidate(long productId) {
+        generation++;
+        byId.remove(productId);
+        complete = false;
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        byId.evictAll();
+        complete = false;
+    }
+
+    public synchronized void setMaxCacheSize(int maxSize) {
+        byId.resize(maxSize);
+    }
+
+    public synchronized int getCacheSize() {
+        return byId.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private synchronized void cacheIfUnchanged(long seen, List<Product> products) {
+        if (generation != seen) {
+            return;
+        }
+        for (Product product : products) {
+            put(product);
+        }
+    }
+
+    // Caller holds the lock
+    private void put(Product product) {
+        byId.put(product.getId(), new Product(product));
+        idBySku.put(product.getSku(), product.getId());
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.myapplication;
+
+// Headline dashboard numbers, read from the trigger-maintained inventory_stats row
+public class InventoryStats {
+
+    private final int productCount;
+    private final int itemCount;
+    private final long inventoryValueCents;
+    private final int lowStockCount;
+
+    public InventoryStats(int productCount, int itemCount, long inventoryValueCents, int lowStockCount) {
+        this.productCount = productCount;
+        this.itemCount = itemCount;
+        this.inventoryValueCents = inventoryValueCents;
+        this.lowStockCount = lowStockCount;
+    }
+
+    public int getProductCount() { return productCount; }
+
+    public int getItemCount() { return itemCount; }
+
+    public long getInventoryValueCents() { return inventoryValueCents; }
+
+    public int getLowStockCount() { return lowStockCount; }
+}
@@ -0,0 +1,101 @@
+package com.example.myapplication;
+
+import androidx.lifecycle.LiveData;
+
+import java.io.Closeable;
+import java.util.Set;
+
+// A query kept up to date as LiveData: it runs once it has an active observer
+// and again whenever one of its tables changes. Changes seen while nothing is
+// observing are caught up with a single run on the next activation. Only one run
+// is in flight at a time; invalidations that arrive meanwhile fold into one rerun.
+// A Closeable result (a paged product list) belongs to the LiveQuery, which closes
+// it once a newer result has been delivered and on close(). Normally held by a
+// ViewModel, which closes it in onCleared(). Main thread only.
+public final class LiveQuery<T> extends LiveData<T> implements InvalidationTracker.Observer {
+
+    private final InvalidationTracker tracker;
+
+    private QueryExecutor.Query<T> query;
+    private QueryExecutor.Task running;
+    private boolean stale = true;
+    private boolean closed;
+
+    LiveQuery(InvalidationTracker tracker, QueryExecutor.Query<T> query, String... tables) {
+        this.tracker = tracker;
+        this.query = query;
+        tracker.addObserver(this, tables);
+    }
+
+    // Switches to another query over the same tables (e.g. browse to search) and
+    // runs it; a result still on its way from the old query is dropped
+    public void setQuery(QueryExecutor.Query<T> query) {
+        this.query = query;
+        cancelRun();
+        refresh();
+    }
+
+    // Runs again even though none of the tables changed
+    public void refresh() {
+        stale = true;
+        runIfStale();
+    }
+
+    // Stops following the tables and closes the current result
+    public void close() {
+        if (closed) return;
+        closed = true;
+        tracker.removeObserver(this);
+        cancelRun();
+        QueryExecutor.closeQuietly(getValue());
+    }
+
+    @Override
+    public void onInvalidated(Set<String> tables) {
+        refresh();
+    }
+
+    @Override
+    protected void onActive() {
+        runIfStale();
+    }
+
+    private void runIfStale() {
+        if (!stale || closed || !hasActiveObservers() || running != null) return;
+        stale = false;
+
+        running = QueryExecutor.getInstance().execute(null, query, new QueryExecutor.Callback<T>() {
+            @Override
+            public void onResult(T result) {
+                running = null;
+                if (!hasActiveObservers()) {
+                    // Nobody would see it before it's replaced; the next activation reruns
+                    stale = true;
+                    QueryExecutor.closeQuietly(result);
+                    return;
+                }
+                T previous = getValue();
+                // Active observers have the new result once this returns
+                setValue(result);
+                if (previous != result && previous instanceof Closeable) {
+                    QueryExecutor.closeQuietly(previous);
+                }
+                runIfStale();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                running = null;
+                QueryExecutor.Callback.super.onError(error);
+                runIfStale();
+            }
+        });
+    }
+
+    private void cancelRun() {
+        if (running != null) {
+            running.cancel();
+            running = null;
+        }
+    }
+}
@@ -6,6 +6,9 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.Lifecycle;
 
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
@@ -24,8 +27,21 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTracer tracer = StartupTracer.getInstance();
+        tracer.mark("activity.create");
         super.onCreate(savedInstanceState);
+
+        // Open the database and build the in-memory product index while the first
+        // screen inflates; its queries wait for the open instead of starting it
+        InventoryRepository repository = InventoryRepository.getInstance(this);
+        QueryExecutor.getInstance().execute(null, () -> {
+            repository.warmUp();
+            return null;
+        }, done -> { });
+
+        StartupTracer.Section content = tracer.begin("activity.content");
         setContentView(R.layout.activity_main);
+        content.end();
 
         // Initialize views
         toolbar = findViewById(R.id.toolbar);
@@ -34,38 +50,60 @@ public class MainActivity extends AppCompatActivity {
         // Set up toolbar
         setSupportActionBar(toolbar);
 
-        // Set up bottom navigation
-        bottomNavigation.setOnItemSelectedListener(item -> {
-            Fragment selectedFragment = null;
-            int itemId = item.getItemId();
-
-            if (itemId == R.id.nav_dashboard) {
-                selectedFragment = new DashboardFragment();
-            } else if (itemId == R.id.nav_products) {
-                selectedFragment = new ProductsFragment();
-            } else if (itemId == R.id.nav_transactions) {
-                selectedFragment = new TransactionsFragment();
-            } else if (itemId == R.id.nav_backup) {
-                selectedFragment = new BackupFragment();
-            }
+        // Set up bottom navigation. Each tab's fragment is made on its first visit
+        // and then only shown and hidden, so its views and view model survive tab switches.
+        bottomNavigation.setOnItemSelectedListener(item -> showTab(item.getItemId()));
+        bottomNavigation.setOnItemReselectedListener(item -> { });
 
-            if (selectedFragment != null) {
-                getSupportFragmentManager()
-                        .beginTransaction()
-                        .replace(R.id.fragment_container, selectedFragment)
-                        .commit();
-                return true;
-            }
+        // Load default fragment (Dashboard); after a recreation the fragment manager
+        // has already restored the tabs
+        if (savedInstanceState == null) {
+            StartupTracer.Section firstTab = tracer.begin("activity.firstTab");
+            showTab(R.id.nav_dashboard);
+            firstTab.end();
+        }
+    }
+
+    private boolean showTab(int itemId) {
+        String tag = tabTag(itemId);
+        if (tag == null) {
             return false;
-        });
+        }
 
-        // Load default fragment (Dashboard)
-        if (savedInstanceState == null) {
-            getSupportFragmentManager().beginTransaction()
-                    .replace(R.id.fragment_container, new DashboardFragment())
-                    .commit();
-            bottomNavigation.setSelectedItemId(R.id.nav_dashboard);
+        FragmentManager fragments = getSupportFragmentManager();
+        FragmentTransaction transaction = fragments.beginTransaction().setReorderingAllowed(true);
+        for (Fragment fragment : fragments.getFragments()) {
+            if (!tag.equals(fragment.getTag()) && !fragment.isHidden()) {
+                // Hidden tabs stay started, so their views survive. Their queries
+                // pause meanwhile (see ShownViewLifecycle) and catch up once on return.
+                transaction.hide(fragment).setMaxLifecycle(fragment, Lifecycle.State.STARTED);
+            }
+        }
+
+        Fragment selected = fragments.findFragmentByTag(tag);
+        if (selected == null) {
+            transaction.add(R.id.fragment_container, newTab(itemId), tag);
+        } else {
+            transaction.show(selected).setMaxLifecycle(selected, Lifecycle.State.RESUMED);
         }
+        // Now, so a quick second tap finds the fragment this one added
+        transaction.commitNow();
+        return true;
+    }
+
+    private static String tabTag(int itemId) {
+        if (itemId == R.id.nav_dashboard) return "dashboard";
+        if (itemId == R.id.nav_products) return "products";
+        if (itemId == R.id.nav_transactions) return "transactions";
+        if (itemId == R.id.nav_backup) return "backup";
+        return null;
+    }
+
+    private static Fragment newTab(int itemId) {
+        if (itemId == R.id.nav_products) return new ProductsFragment();
+        if (itemId == R.id.nav_transactions) return new TransactionsFragment();
+        if (itemId == R.id.nav_backup) return new BackupFragment();
+        return new DashboardFragment();
     }
 
     @Override
@@ -0,0 +1,37 @@
+package com.example.myapplication;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+// Prices and values are whole cents (long) everywhere below the UI, so sums are exact
+public final class Money {
+
+    private Money() {
+    }
+
+    // For amounts that arrive as doubles, e.g. the "price" field of older backups
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    // "12.5" -> 1250, rounded half up past two decimals
+    public static long parseCents(String text) {
+        return new BigDecimal(text.trim()).movePointRight(2)
+                .setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // 1250 -> "12.50", for edit fields
+    public static String toPlainString(long cents) {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+
+    // 1250 -> "$12.50"
+    public static String format(long cents) {
+        return String.format(Locale.getDefault(), "$%.2f", BigDecimal.valueOf(cents, 2));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.myapplication;
+
+// Stock in/out totals from the daily_movements rollup. Depending on the query,
+// period may be null and product id 0 (e.g. all products for one week).
+public class MovementTotal {
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    private final String period;
+    private final long productId;
+    private final String productName;
+    private final long quantityIn;
+    private final long quantityOut;
+
+    public MovementTotal(String period, long productId, String productName,
+                         long quantityIn, long quantityOut) {
+        this.period = period;
+        this.productId = productId;
+        this.productName = productName;
+        this.quantityIn = quantityIn;
+        this.quantityOut = quantityOut;
+    }
+
+    // "2024-03-17", "2024-W11" or "2024-03"
+    public String getPeriod() { return period; }
+
+    public long getProductId() { return productId; }
+
+    public String getProductName() { return productName; }
+
+    public long getQuantityIn() { return quantityIn; }
+
+    public long getQuantityOut() { return quantityOut; }
+
+    public long getNet() { return quantityIn - quantityOut; }
+}
@@ -0,0 +1,35 @@
+package com.example.myapplication;
+
+// Direction of a stock movement. Stored as its code in transactions.type;
+// the key is what the UI and backups use.
+public enum MovementType {
+    IN(1, "in"),
+    OUT(2, "out");
+
+    private final int code;
+    private final String key;
+
+    MovementType(int code, String key) {
+        this.code = code;
+        this.key = key;
+    }
+
+    public int getCode() { return code; }
+
+    public String getKey() { return key; }
+
+    public static MovementType fromCode(int code) {
+        for (MovementType type : values()) {
+            if (type.code == code) return type;
+        }
+        throw new IllegalArgumentException("Unknown movement type code: " + code);
+    }
+
+    // Null for anything but "in" / "out"
+    public static MovementType fromKey(String key) {
+        for (MovementType type : values()) {
+            if (type.key.equals(key)) return type;
+        }
+        return null;
+    }
+}
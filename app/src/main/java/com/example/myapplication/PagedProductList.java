@@ -0,0 +1,188 @@
+package com.example.myapplication;
+
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+// A read-only List<Product> over the whole catalog, for browsing. Pages are read
+// on the query executor; get() never touches the database. It returns the row if
+// its page is loaded and null otherwise, and starts reading that page (and the
+// neighbouring one near a page's edge). The listener hears when rows arrive so
+// their placeholders can be rebound. Only KEPT_PAGES pages are kept, each in the
+// slot its page number picks, so heap use doesn't grow with the catalog.
+//
+// size() is fixed when the list is opened. A page read after a write, or one that
+// doesn't hold the rows size() promises, means the table has moved on: the list
+// goes stale, reads nothing more and tells the source so it is replaced. Rows it
+// already has are still returned. Created on a background thread, then main
+// thread only; close() stops any reads and the list can't be read afterwards.
+public final class PagedProductList extends AbstractList<Product> implements Closeable {
+
+    public static final int PAGE_SIZE = DatabaseHelper.PAGE_SIZE;
+    // Several screens' worth of rows
+    private static final int KEPT_PAGES = 8;
+    // Rows from a page's edge at which the page next to it is read as well
+    private static final int PREFETCH_ROWS = PAGE_SIZE / 4;
+
+    interface Source {
+        // Changes with every write
+        long generation();
+
+        // limit rows from offset on, by name and id. after is the row just before
+        // offset if the caller has it, null otherwise. Background thread.
+        List<Product> read(@Nullable Product after, int offset, int limit);
+
+        // The list no longer matches the table; any thread
+        void onStale();
+    }
+
+    public interface OnRowsLoadedListener {
+        void onRowsLoaded(int start, int count);
+    }
+
+    private final Source source;
+    private final long generation;
+    private final int size;
+
+    // Slot page % KEPT_PAGES holds that page's rows, or -1 and null
+    private final int[] pageInSlot = new int[KEPT_PAGES];
+    private final Product[][] rowsInSlot = new Product[KEPT_PAGES][];
+    // The page being read into each slot, or -1 and null
+    private final int[] loadingInSlot = new int[KEPT_PAGES];
+    private final QueryExecutor.Task[] taskInSlot = new QueryExecutor.Task[KEPT_PAGES];
+
+    private OnRowsLoadedListener listener;
+    private boolean stale;
+    private boolean closed;
+
+    // generation as it was before size and firstPage were read
+    PagedProductList(Source source, long generation, int size, List<Product> firstPage) {
+        this.source = source;
+        this.generation = generation;
+        this.size = size;
+        Arrays.fill(pageInSlot, -1);
+        Arrays.fill(loadingInSlot, -1);
+
+        if (firstPage.size() == rowsOnPage(0)) {
+            pageInSlot[0] = 0;
+            rowsInSlot[0] = firstPage.toArray(new Product[0]);
+        } else {
+            markStale();
+        }
+    }
+
+    public void setOnRowsLoadedListener(OnRowsLoadedListener listener) {
+        this.listener = listener;
+    }
+
+    // null while the row's page is being read
+    @Override
+    public Product get(int index) {
+        if (closed) {
+            throw new IllegalStateException("Product list is closed");
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        int page = index / PAGE_SIZE;
+        int row = index % PAGE_SIZE;
+
+        if (row >= PAGE_SIZE - PREFETCH_ROWS && (page + 1) * PAGE_SIZE < size) {
+            load(page + 1);
+        } else if (row < PREFETCH_ROWS && page > 0) {
+            load(page - 1);
+        }
+
+        int slot = page % KEPT_PAGES;
+        if (pageInSlot[slot] != page) {
+            load(page);
+            return null;
+        }
+        return rowsInSlot[slot][row];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        listener = null;
+        cancelLoads();
+        Arrays.fill(rowsInSlot, null);
+    }
+
+    private void load(int page) {
+        int slot = page % KEPT_PAGES;
+        if (stale || pageInSlot[slot] == page || loadingInSlot[slot] == page) return;
+        if (taskInSlot[slot] != null) {
+            // Whatever the slot was waiting for is further away now
+            taskInSlot[slot].cancel();
+        }
+
+        int previousSlot = (page - 1) % KEPT_PAGES;
+        Product after = page > 0 && pageInSlot[previousSlot] == page - 1
+                ? rowsInSlot[previousSlot][PAGE_SIZE - 1] : null;
+        int offset = page * PAGE_SIZE;
+        int limit = rowsOnPage(page);
+
+        loadingInSlot[slot] = page;
+        taskInSlot[slot] = QueryExecutor.getInstance().execute(null, () -> {
+            List<Product> rows = source.read(after, offset, limit);
+            // A write ran meanwhile, rows may have moved in or out of this page
+            if (source.generation() != generation) return null;
+            return rows.toArray(new Product[0]);
+        }, new QueryExecutor.Callback<Product[]>() {
+            @Override
+            public void onResult(Product[] rows) {
+                if (closed || loadingInSlot[slot] != page) return;
+                loadingInSlot[slot] = -1;
+                taskInSlot[slot] = null;
+                if (rows == null || rows.length != limit) {
+                    markStale();
+                    return;
+                }
+                pageInSlot[slot] = page;
+                rowsInSlot[slot] = rows;
+                if (listener != null) listener.onRowsLoaded(offset, limit);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                if (loadingInSlot[slot] == page) {
+                    // The next get() for the page tries again
+                    loadingInSlot[slot] = -1;
+                    taskInSlot[slot] = null;
+                }
+                QueryExecutor.Callback.super.onError(error);
+            }
+        });
+    }
+
+    private int rowsOnPage(int page) {
+        return Math.min(PAGE_SIZE, size - page * PAGE_SIZE);
+    }
+
+    private void markStale() {
+        if (stale) return;
+        stale = true;
+        cancelLoads();
+        source.onStale();
+    }
+
+    private void cancelLoads() {
+        for (int slot = 0; slot < KEPT_PAGES; slot++) {
+            if (taskInSlot[slot] != null) {
+                taskInSlot[slot].cancel();
+                taskInSlot[slot] = null;
+            }
+            loadingInSlot[slot] = -1;
+        }
+    }
+}
@@ -3,36 +3,54 @@ package com.example.myapplication;
 import java.io.Serializable;
 
 public class Product implements Serializable {
-    private String id;
+    private long id;
     private String name;
     private String sku;
     private String category;
     private int quantity;
     private int minStock;
-    private double price;
+    private long priceCents;
     private String supplier;
     private long createdAt;
 
     public Product() {
-        this.id = String.valueOf(System.currentTimeMillis());
+        this.id = IdGenerator.nextId();
         this.createdAt = System.currentTimeMillis();
     }
 
     public Product(String name, String sku, String category, int quantity,
-                   int minStock, double price, String supplier) {
+                   int minStock, long priceCents, String supplier) {
         this();
         this.name = name;
         this.sku = sku;
         this.category = category;
         this.quantity = quantity;
         this.minStock = minStock;
-        this.price = price;
+        this.priceCents = priceCents;
         this.supplier = supplier;
     }
 
+    // A product that already has an id, e.g. a row read back from the database;
+    // doesn't draw a new one
+    Product(long id) {
+        this.id = id;
+    }
+
+    public Product(Product other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.sku = other.sku;
+        this.category = other.category;
+        this.quantity = other.quantity;
+        this.minStock = other.minStock;
+        this.priceCents = other.priceCents;
+        this.supplier = other.supplier;
+        this.createdAt = other.createdAt;
+    }
+
     // Getters and Setters
-    public String getId() { return id; }
-    public void setId(String id) { this.id = id; }
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
 
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
@@ -49,8 +67,8 @@ public class Product implements Serializable {
     public int getMinStock() { return minStock; }
     public void setMinStock(int minStock) { this.minStock = minStock; }
 
-    public double getPrice() { return price; }
-    public void setPrice(double price) { this.price = price; }
+    public long getPriceCents() { return priceCents; }
+    public void setPriceCents(long priceCents) { this.priceCents = priceCents; }
 
     public String getSupplier() { return supplier; }
     public void setSupplier(String supplier) { this.supplier = supplier; }
@@ -62,8 +80,8 @@ public class Product implements Serializable {
         return quantity <= minStock;
     }
 
-    public double getTotalValue() {
-        return quantity * price;
+    public long getTotalValueCents() {
+        return quantity * priceCents;
     }
 }
 
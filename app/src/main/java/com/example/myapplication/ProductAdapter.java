@@ -1,21 +1,49 @@
 package com.example.myapplication;
 
+import android.graphics.drawable.Drawable;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.myapplication.R;
 import com.example.myapplication.Product;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
+// New lists are diffed against the shown one on a background thread, so only rows
+// that were added, removed, moved or changed get rebound. A PagedProductList is
+// swapped in without a diff (that would read every page); whoever opened it
+// closes it once the adapter has been given its replacement. Its rows that are
+// still being read are bound blank and rebound when their page arrives.
 public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
 
-    private List<Product> products = new ArrayList<>();
+    private static final DiffUtil.ItemCallback<Product> DIFF = new DiffUtil.ItemCallback<Product>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        // Only what bind() shows
+        @Override
+        public boolean areContentsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+            return oldItem.getQuantity() == newItem.getQuantity()
+                    && oldItem.isLowStock() == newItem.isLowStock()
+                    && oldItem.getPriceCents() == newItem.getPriceCents()
+                    && TextUtils.equals(oldItem.getName(), newItem.getName())
+                    && TextUtils.equals(oldItem.getSku(), newItem.getSku())
+                    && TextUtils.equals(oldItem.getCategory(), newItem.getCategory());
+        }
+    };
+
+    private final AsyncListDiffer<Product> differ = new AsyncListDiffer<>(this, DIFF);
+    // Shown instead of the differ's list while set
+    private PagedProductList pagedList;
+    private final PagedProductList.OnRowsLoadedListener rowsLoaded = this::notifyItemRangeChanged;
     private OnProductClickListener listener;
 
     public interface OnProductClickListener {
@@ -26,6 +54,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
 
     public ProductAdapter(OnProductClickListener listener) {
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -38,66 +67,142 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
 
     @Override
     public void onBindViewHolder(@NonNull ProductViewHolder holder, int position) {
-        Product product = products.get(position);
+        Product product = currentList().get(position);
         holder.bind(product);
     }
 
     @Override
     public int getItemCount() {
-        return products.size();
+        return currentList().size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        if (pagedList != null) {
+            // Its rows may still be loading and a stable id must not change when
+            // one arrives, so they are numbered by position, apart from product ids.
+            // Swapping the list rebinds every row anyway.
+            return -1 - position;
+        }
+        return differ.getCurrentList().get(position).getId();
+    }
+
+    private List<Product> currentList() {
+        return pagedList != null ? pagedList : differ.getCurrentList();
+    }
+
+    // The list must not be modified afterwards
     public void setProducts(List<Product> products) {
-        this.products = products;
-        notifyDataSetChanged();
+        if (pagedList != null) {
+            pagedList.setOnRowsLoadedListener(null);
+        }
+        if (products instanceof PagedProductList) {
+            // Empty the differ first so the removal it reports matches what is shown
+            differ.submitList(null);
+            pagedList = (PagedProductList) products;
+            pagedList.setOnRowsLoadedListener(rowsLoaded);
+            notifyDataSetChanged();
+            return;
+        }
+
+        if (pagedList != null) {
+            // The differ is empty, so the new list is inserted without a diff
+            pagedList = null;
+            notifyDataSetChanged();
+        }
+        differ.submitList(products);
     }
 
+    // Listeners are made once per holder and read the product bound last. The
+    // formatted fields are rebuilt in place, and only when their value changed.
     class ProductViewHolder extends RecyclerView.ViewHolder {
-        TextView tvName, tvSku, tvCategory, tvQuantity, tvPrice, tvStatus;
+        TextView tvName, tvCategory, tvStatus;
         ImageButton btnEdit, btnDelete;  // ✅ ADDED THIS
+        final ReusableText sku, quantity, price;
+        final Drawable lowBackground, goodBackground;
+
+        private Product bound;
+        private String shownSku;
+        private int shownQuantity;
+        private long shownPrice;
+        // -1 until bound, then 1 for low stock and 0 otherwise
+        private int shownLowStock = -1;
 
         ProductViewHolder(@NonNull View itemView) {
             super(itemView);
             tvName = itemView.findViewById(R.id.tv_product_name);
-            tvSku = itemView.findViewById(R.id.tv_product_sku);
             tvCategory = itemView.findViewById(R.id.tv_product_category);
-            tvQuantity = itemView.findViewById(R.id.tv_product_quantity);
-            tvPrice = itemView.findViewById(R.id.tv_product_price);
             tvStatus = itemView.findViewById(R.id.tv_stock_status);
+            sku = new ReusableText(itemView.findViewById(R.id.tv_product_sku));
+            quantity = new ReusableText(itemView.findViewById(R.id.tv_product_quantity));
+            price = new ReusableText(itemView.findViewById(R.id.tv_product_price));
 
             // ✅ ADDED THESE TWO LINES
             btnEdit = itemView.findViewById(R.id.btn_edit);
             btnDelete = itemView.findViewById(R.id.btn_delete);
-        }
 
-        void bind(Product product) {
-            tvName.setText(product.getName());
-            tvSku.setText("SKU: " + product.getSku());
-            tvCategory.setText(product.getCategory());
-            tvQuantity.setText(String.valueOf(product.getQuantity()));
-            tvPrice.setText(String.format(Locale.getDefault(), "$%.2f", product.getPrice()));
-
-            if (product.isLowStock()) {
-                tvStatus.setText("LOW STOCK");
-                tvStatus.setBackgroundResource(R.drawable.bg_status_low);
-            } else {
-                tvStatus.setText("IN STOCK");
-                tvStatus.setBackgroundResource(R.drawable.bg_status_good);
-            }
+            // Each holder owns its two backgrounds, setBackgroundResource() would inflate a new one
+            lowBackground = itemView.getContext().getDrawable(R.drawable.bg_status_low);
+            goodBackground = itemView.getContext().getDrawable(R.drawable.bg_status_good);
 
             itemView.setOnClickListener(v -> {
-                if (listener != null) listener.onProductClick(product);
+                if (listener != null && bound != null) listener.onProductClick(bound);
             });
 
             // ✅ ADDED EDIT BUTTON CLICK LISTENER
             btnEdit.setOnClickListener(v -> {
-                if (listener != null) listener.onEditClick(product);
+                if (listener != null && bound != null) listener.onEditClick(bound);
             });
 
             // ✅ ADDED DELETE BUTTON CLICK LISTENER
             btnDelete.setOnClickListener(v -> {
-                if (listener != null) listener.onDeleteClick(product);
+                if (listener != null && bound != null) listener.onDeleteClick(bound);
             });
         }
+
+        // null for a row that is still loading
+        void bind(Product product) {
+            bound = product;
+            if (product == null) {
+                bindPlaceholder();
+                return;
+            }
+            tvName.setText(product.getName());
+            tvCategory.setText(product.getCategory());
+
+            boolean first = shownLowStock == -1;
+            if (first || !TextUtils.equals(shownSku, product.getSku())) {
+                shownSku = product.getSku();
+                sku.clear().append("SKU: ").append(shownSku).show();
+            }
+            if (first || shownQuantity != product.getQuantity()) {
+                shownQuantity = product.getQuantity();
+                quantity.clear().append(shownQuantity).show();
+            }
+            if (first || shownPrice != product.getPriceCents()) {
+                shownPrice = product.getPriceCents();
+                price.clear().appendMoney(shownPrice).show();
+            }
+
+            int lowStock = product.isLowStock() ? 1 : 0;
+            if (lowStock != shownLowStock) {
+                shownLowStock = lowStock;
+                tvStatus.setText(lowStock == 1 ? "LOW STOCK" : "IN STOCK");
+                tvStatus.setBackground(lowStock == 1 ? lowBackground : goodBackground);
+            }
+        }
+
+        private void bindPlaceholder() {
+            tvName.setText(null);
+            tvCategory.setText(null);
+            sku.clear().show();
+            quantity.clear().show();
+            price.clear().show();
+            tvStatus.setText(null);
+            tvStatus.setBackground(null);
+            // The next product is shown in full
+            shownSku = null;
+            shownLowStock = -1;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,587 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Name and SKU lookup for pickers, answered from memory instead of SQLite.
+// Loaded once in the background, then kept current by the repository's writes.
+// Queries shorter than three characters match prefixes (of the name, of any
+// later word in the name, of the SKU); longer ones match any substring through
+// trigram posting lists. Results rank name prefixes first, then SKU prefixes,
+// word prefixes and other substrings, then by name.
+public final class ProductIndex {
+
+    private static final int RANK_NAME_PREFIX = 0;
+    private static final int RANK_SKU_PREFIX = 1;
+    private static final int RANK_WORD_PREFIX = 2;
+    private static final int RANK_SUBSTRING = 3;
+
+    private final Object loadLock = new Object();
+    private Table table = new Table();
+    private boolean loaded;
+    // Writes that arrive while load() reads the products table, replayed on top of it
+    private List<Change> replay;
+
+    private static final class Change {
+        final long id;
+        final String name;
+        final String sku;
+
+        Change(long id, String name, String sku) {
+            this.id = id;
+            this.name = name;
+            this.sku = sku;
+        }
+    }
+
+    // Where load() reads the key of every product from
+    interface KeySource {
+        void forEachProductKey(DatabaseHelper.ProductKeyVisitor visitor);
+    }
+
+    // Background thread; replaces whatever the index held
+    public void load(DatabaseHelper db) {
+        load(db::forEachProductKey);
+    }
+
+    void load(KeySource source) {
+        synchronized (loadLock) {
+            loadLocked(source);
+        }
+    }
+
+    private void loadLocked(KeySource source) {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+
+        Table fresh = new Table();
+        fresh.beginBulkLoad();
+        source.forEachProductKey(fresh::add);
+        fresh.sortKeys();
+
+        synchronized (this) {
+            for (Change change : replay) {
+                fresh.remove(change.id);
+                if (change.name != null) {
+                    fresh.add(change.id, change.name, change.sku);
+                }
+            }
+            replay = null;
+            table = fresh;
+            loaded = true;
+        }
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    // Adds the product or replaces what the index had for it
+    public synchronized void put(long id, String name, String sku) {
+        table.remove(id);
+        table.add(id, name, sku);
+        if (replay != null) replay.add(new Change(id, name, sku));
+    }
+
+    public synchronized void remove(long id) {
+        table.remove(id);
+        if (replay != null) replay.add(new Change(id, null, null));
+    }
+
+    // Ids of the best limit matches, best first
+    public synchronized long[] search(String query, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || limit <= 0) return new long[0];
+        return table.search(q, limit);
+    }
+
+    public synchronized int size() {
+        return table.size;
+    }
+
+    // Rough heap use: array capacities plus the strings they hold
+    public synchronized long estimateBytes() {
+        return table.estimateBytes();
+    }
+
+    public synchronized String getMemoryReport() {
+        return String.format(Locale.US,
+                "%d products, %d prefix keys, %d trigrams, %d postings, ~%d KB",
+                table.size, table.keyCount, table.postingCount, table.postingEntries(),
+                table.estimateBytes() / 1024);
+    }
+
+    // ================= TABLE =================
+
+    // The index itself; not thread-safe. Each product occupies a slot holding its id
+    // and lowercased name and SKU. Freed slots are reused.
+    private static final class Table {
+
+        private static final int NAME = 0;
+        private static final int SKU = 1;
+        // Words starting further into a name than this get no prefix key
+        private static final int MAX_OFFSET = 0xFFFF;
+
+        private long[] ids = new long[64];
+        private String[] names = new String[64];
+        private String[] skus = new String[64];
+        private int slotCount;
+        private int[] freeSlots = new int[16];
+        private int freeCount;
+        private int size;
+        private final LongIntMap slotById = new LongIntMap();
+
+        // Prefix keys, sorted by the text they point at: slot << 17 | field << 16 | offset
+        private long[] keys = new long[256];
+        private int keyCount;
+        private boolean keysSorted = true;
+
+        // Trigram -> posting list of slots (unordered)
+        private final LongIntMap postingByGram = new LongIntMap();
+        private int[][] postings = new int[256][];
+        private int[] postingSizes = new int[256];
+        private int postingCount;
+
+        void add(long id, String name, String sku) {
+            int slot = allocateSlot();
+            ids[slot] = id;
+            names[slot] = lower(name);
+            skus[slot] = lower(sku);
+            slotById.put(id, slot);
+            size++;
+
+            forEachKey(slot, this::insertKey);
+            forEachGram(slot, gram -> addPosting(gram, slot));
+        }
+
+        void remove(long id) {
+            int slot = slotById.get(id);
+            if (slot < 0) return;
+
+            forEachKey(slot, this::deleteKey);
+            forEachGram(slot, gram -> removePosting(gram, slot));
+
+            slotById.remove(id);
+            names[slot] = null;
+            skus[slot] = null;
+            if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            freeSlots[freeCount++] = slot;
+            size--;
+        }
+
+        // ----- slots -----
+
+        private int allocateSlot() {
+            if (freeCount > 0) return freeSlots[--freeCount];
+            if (slotCount == ids.length) {
+                int capacity = slotCount * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                skus = Arrays.copyOf(skus, capacity);
+            }
+            return slotCount++;
+        }
+
+        // Shares the original when it is already lowercase, which most SKUs and
+        // many names are, rather than holding two copies of the same text
+        private static String lower(String text) {
+            if (text == null) return "";
+            String lower = text.toLowerCase(Locale.ROOT);
+            return lower.equals(text) ? text : lower;
+        }
+
+        // ----- prefix keys -----
+
+        private interface KeyVisitor {
+            void visit(long key);
+        }
+
+        private void forEachKey(int slot, KeyVisitor visitor) {
+            String name = names[slot];
+            int end = Math.min(name.length(), MAX_OFFSET);
+            for (int i = 0; i < end; i++) {
+                if (Character.isLetterOrDigit(name.charAt(i))
+                        && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)))) {
+                    visitor.visit(key(slot, NAME, i));
+                }
+            }
+            if (!skus[slot].isEmpty()) {
+                visitor.visit(key(slot, SKU, 0));
+            }
+        }
+
+        private static long key(int slot, int field, int offset) {
+            return ((long) slot << 17) | ((long) field << 16) | offset;
+        }
+
+        private static int keySlot(long key) {
+            return (int) (key >>> 17);
+        }
+
+        private static int keyField(long key) {
+            return (int) (key >>> 16) & 1;
+        }
+
+        private static int keyOffset(long key) {
+            return (int) key & 0xFFFF;
+        }
+
+        private String keyText(long key) {
+            return keyField(key) == NAME ? names[keySlot(key)] : skus[keySlot(key)];
+        }
+
+        // By the text from the key's offset on; equal texts fall back to the key value
+        private int compareKeys(long a, long b) {
+            int c = compareFrom(keyText(a), keyOffset(a), keyText(b), keyOffset(b));
+            return c != 0 ? c : Long.compare(a, b);
+        }
+
+        // String.compareTo() of a.substring(i) and b.substring(j), without the copies
+        private static int compareFrom(String a, int i, String b, int j) {
+            while (i < a.length() && j < b.length()) {
+                char ca = a.charAt(i++);
+                char cb = b.charAt(j++);
+                if (ca != cb) return ca < cb ? -1 : 1;
+            }
+            return Integer.compare(a.length() - i, b.length() - j);
+        }
+
+        // Bulk loads append unsorted and sort once
+        private void insertKey(long key) {
+            if (keyCount == keys.length) keys = Arrays.copyOf(keys, keyCount * 2);
+            if (!keysSorted) {
+                keys[keyCount++] = key;
+                return;
+            }
+            int at = findKey(key);
+            int position = at >= 0 ? at : -at - 1;
+            System.arraycopy(keys, position, keys, position + 1, keyCount - position);
+            keys[position] = key;
+            keyCount++;
+        }
+
+        private void deleteKey(long key) {
+            int at = findKey(key);
+            if (at < 0) return;
+            System.arraycopy(keys, at + 1, keys, at, keyCount - at - 1);
+            keyCount--;
+        }
+
+        private int findKey(long key) {
+            int low = 0;
+            int high = keyCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int c = compareKeys(keys[mid], key);
+                if (c < 0) low = mid + 1;
+                else if (c > 0) high = mid - 1;
+                else return mid;
+            }
+            return -(low + 1);
+        }
+
+        // First key whose text is >= prefix
+        private int lowerBound(String prefix) {
+            int low = 0;
+            int high = keyCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                long key = keys[mid];
+                if (compareFrom(keyText(key), keyOffset(key), prefix, 0) < 0) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
+        // Until sortKeys(), add() appends keys unsorted and nothing may be removed or searched
+        void beginBulkLoad() {
+            keysSorted = false;
+        }
+
+        void sortKeys() {
+            long[] buffer = new long[keyCount];
+            mergeSort(keys, buffer, 0, keyCount);
+            keysSorted = true;
+        }
+
+        private void mergeSort(long[] a, long[] buffer, int from, int to) {
+            if (to - from < 2) return;
+            int mid = (from + to) >>> 1;
+            mergeSort(a, buffer, from, mid);
+            mergeSort(a, buffer, mid, to);
+            if (compareKeys(a[mid - 1], a[mid]) <= 0) return;
+            System.arraycopy(a, from, buffer, from, to - from);
+            int i = from, j = mid, k = from;
+            while (i < mid && j < to) {
+                a[k++] = compareKeys(buffer[i], buffer[j]) <= 0 ? buffer[i++] : buffer[j++];
+            }
+            while (i < mid) a[k++] = buffer[i++];
+            while (j < to) a[k++] = buffer[j++];
+        }
+
+        // ----- trigrams -----
+
+        private interface GramVisitor {
+            void visit(long gram);
+        }
+
+        private void forEachGram(int slot, GramVisitor visitor) {
+            forEachGram(names[slot], visitor);
+            forEachGram(skus[slot], visitor);
+        }
+
+        private static void forEachGram(String text, GramVisitor visitor) {
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                visitor.visit(gram(text, i));
+            }
+        }
+
+        private static long gram(String text, int i) {
+            return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+
+        private void addPosting(long gram, int slot) {
+            int list = postingByGram.get(gram);
+            if (list < 0) {
+                if (postingCount == postings.length) {
+                    postings = Arrays.copyOf(postings, postingCount * 2);
+                    postingSizes = Arrays.copyOf(postingSizes, postingCount * 2);
+                }
+                list = postingCount++;
+                postings[list] = new int[4];
+                postingByGram.put(gram, list);
+            }
+            int size = postingSizes[list];
+            // A gram repeated within the same product was just added
+            if (size > 0 && postings[list][size - 1] == slot) return;
+            if (size == postings[list].length) postings[list] = Arrays.copyOf(postings[list], size * 2);
+            postings[list][size] = slot;
+            postingSizes[list] = size + 1;
+        }
+
+        private void removePosting(long gram, int slot) {
+            int list = postingByGram.get(gram);
+            if (list < 0) return;
+            int[] slots = postings[list];
+            int size = postingSizes[list];
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[size - 1];
+                    postingSizes[list] = size - 1;
+                    return;
+                }
+            }
+        }
+
+        long postingEntries() {
+            long entries = 0;
+            for (int i = 0; i < postingCount; i++) entries += postingSizes[i];
+            return entries;
+        }
+
+        // ----- queries -----
+
+        long[] search(String q, int limit) {
+            TopK top = new TopK(limit);
+            if (q.length() < 3) {
+                searchPrefixes(q, top);
+            } else {
+                searchSubstrings(q, top);
+            }
+            return top.ids();
+        }
+
+        private void searchPrefixes(String q, TopK top) {
+            for (int i = lowerBound(q); i < keyCount; i++) {
+                long key = keys[i];
+                String text = keyText(key);
+                if (!text.startsWith(q, keyOffset(key))) break;
+                int rank = keyField(key) == SKU ? RANK_SKU_PREFIX
+                        : keyOffset(key) == 0 ? RANK_NAME_PREFIX : RANK_WORD_PREFIX;
+                top.offer(keySlot(key), rank);
+            }
+        }
+
+        // Candidates come from the shortest posting list among the query's trigrams
+        private void searchSubstrings(String q, TopK top) {
+            int shortest = -1;
+            for (int i = 0; i + 3 <= q.length(); i++) {
+                int list = postingByGram.get(gram(q, i));
+                if (list < 0 || postingSizes[list] == 0) return;
+                if (shortest < 0 || postingSizes[list] < postingSizes[shortest]) shortest = list;
+            }
+
+            int[] slots = postings[shortest];
+            for (int i = 0; i < postingSizes[shortest]; i++) {
+                int slot = slots[i];
+                int rank = substringRank(slot, q);
+                if (rank >= 0) top.offer(slot, rank);
+            }
+        }
+
+        private int substringRank(int slot, String q) {
+            String name = names[slot];
+            if (name.startsWith(q)) return RANK_NAME_PREFIX;
+            if (skus[slot].startsWith(q)) return RANK_SKU_PREFIX;
+            int rank = skus[slot].contains(q) ? RANK_SUBSTRING : -1;
+            for (int at = name.indexOf(q); at >= 0; at = name.indexOf(q, at + 1)) {
+                if (!Character.isLetterOrDigit(name.charAt(at - 1))) return RANK_WORD_PREFIX;
+                rank = RANK_SUBSTRING;
+            }
+            return rank;
+        }
+
+        // The best few matches so far, kept sorted by rank, then name, then id.
+        // A product matched more than once keeps its best rank.
+        private final class TopK {
+            private final int[] slots;
+            private final int[] ranks;
+            private int count;
+
+            TopK(int limit) {
+                slots = new int[limit];
+                ranks = new int[limit];
+            }
+
+            void offer(int slot, int rank) {
+                for (int i = 0; i < count; i++) {
+                    if (slots[i] == slot) {
+                        if (ranks[i] <= rank) return;
+                        System.arraycopy(slots, i + 1, slots, i, count - i - 1);
+                        System.arraycopy(ranks, i + 1, ranks, i, count - i - 1);
+                        count--;
+                        break;
+                    }
+                }
+                if (count == slots.length && compare(slot, rank, slots[count - 1], ranks[count - 1]) >= 0) {
+                    return;
+                }
+
+                int position = count < slots.length ? count : count - 1;
+                while (position > 0 && compare(slot, rank, slots[position - 1], ranks[position - 1]) < 0) {
+                    slots[position] = slots[position - 1];
+                    ranks[position] = ranks[position - 1];
+                    position--;
+                }
+                slots[position] = slot;
+                ranks[position] = rank;
+                if (count < slots.length) count++;
+            }
+
+            private int compare(int slotA, int rankA, int slotB, int rankB) {
+                if (rankA != rankB) return rankA < rankB ? -1 : 1;
+                int c = names[slotA].compareTo(names[slotB]);
+                return c != 0 ? c : Long.compare(ids[slotA], ids[slotB]);
+            }
+
+            long[] ids() {
+                long[] result = new long[count];
+                for (int i = 0; i < count; i++) result[i] = ids[slots[i]];
+                return result;
+            }
+        }
+
+        // ----- memory -----
+
+        long estimateBytes() {
+            long bytes = 8L * ids.length + 4L * (names.length + skus.length) + 4L * freeSlots.length
+                    + 8L * keys.length + slotById.estimateBytes() + postingByGram.estimateBytes()
+                    + 4L * (postings.length + postingSizes.length);
+            for (int i = 0; i < slotCount; i++) {
+                if (names[i] != null) bytes += stringBytes(names[i]);
+                if (skus[i] != null && skus[i] != names[i]) bytes += stringBytes(skus[i]);
+            }
+            for (int i = 0; i < postingCount; i++) {
+                bytes += 16 + 4L * postings[i].length;
+            }
+            return bytes;
+        }
+
+        private static long stringBytes(String text) {
+            return 24 + 16 + 2L * text.length();
+        }
+    }
+
+    // ================= LONG -> INT MAP =================
+
+    // Open addressing with linear probing, so ids and trigrams aren't boxed.
+    // get() returns -1 for a missing key; values are never negative.
+    private static final class LongIntMap {
+        private long[] keys = new long[64];
+        private int[] values = new int[64];
+        private boolean[] used = new boolean[64];
+        private int count;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((count + 1) * 4 > keys.length * 3) grow();
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (used[i]) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = key;
+            values[i] = value;
+            count++;
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (used[i] && keys[i] != key) i = (i + 1) & mask;
+            if (!used[i]) return;
+
+            int gap = i;
+            for (int j = (gap + 1) & mask; used[j]; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                // Move j into the gap unless its home lies cyclically in (gap, j]
+                boolean stays = gap <= j ? (gap < home && home <= j) : (gap < home || home <= j);
+                if (!stays) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            used[gap] = false;
+            count--;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        long estimateBytes() {
+            return 13L * keys.length;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.myapplication;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Search-as-you-type over DatabaseHelper.searchProducts(). Each new request
+// cancels the one before it, also while it is still running in SQLite. Results
+// stop at MAX_RESULTS. When a query just extends the previous one ("wid" ->
+// "widg") and the previous result was complete and is still current, the new
+// result is a subset of it and is filtered in memory instead of read again.
+// Every search's latency is recorded.
+public final class ProductSearch {
+
+    private static final String TAG = "ProductSearch";
+
+    public static final int MAX_RESULTS = 200;
+
+    // How many rows are filtered between cancellation checks
+    private static final int CHECK_INTERVAL = 256;
+
+    // One query typed by the user. Create it on the main thread, run it anywhere.
+    public static final class Request {
+        private final String query;
+        private final CancellationSignal signal = new CancellationSignal();
+
+        private Request(String query) {
+            this.query = query;
+        }
+
+        public String getQuery() { return query; }
+    }
+
+    public static final class Result {
+        private final String query;
+        private final List<Product> products;
+        private final boolean capped;
+        private final boolean narrowed;
+        private final long latencyMicros;
+
+        Result(String query, List<Product> products, boolean capped, boolean narrowed, long latencyMicros) {
+            this.query = query;
+            this.products = products;
+            this.capped = capped;
+            this.narrowed = narrowed;
+            this.latencyMicros = latencyMicros;
+        }
+
+        public String getQuery() { return query; }
+        public List<Product> getProducts() { return products; }
+        // More than MAX_RESULTS products matched
+        public boolean isCapped() { return capped; }
+        // Filtered from the previous result without a query
+        public boolean isNarrowed() { return narrowed; }
+        public long getLatencyMicros() { return latencyMicros; }
+    }
+
+    // The last complete result, which the next keystroke may narrow
+    private static final class Basis {
+        final String query;
+        final List<Product> products;
+        final boolean bySku;
+        final long generation;
+
+        Basis(String query, List<Product> products, boolean bySku, long generation) {
+            this.query = query;
+            this.products = products;
+            this.bySku = bySku;
+            this.generation = generation;
+        }
+    }
+
+    private final DatabaseHelper db;
+    private Request current;
+    private volatile Basis basis;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong narrowedSearches = new AtomicLong();
+    private final AtomicLong cancelledSearches = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    ProductSearch(DatabaseHelper db) {
+        this.db = db;
+    }
+
+    // Main thread; cancels the request made before it
+    public Request newRequest(String query) {
+        cancel();
+        current = new Request(query);
+        return current;
+    }
+
+    // Main thread
+    public void cancel() {
+        if (current != null) {
+            current.signal.cancel();
+            current = null;
+        }
+    }
+
+    // generation is the repository's write count; a basis from another generation
+    // may hold rows that have changed since and is not narrowed
+    Result run(Request request, long generation) {
+        long start = System.nanoTime();
+        String query = request.query;
+        CancellationSignal signal = request.signal;
+
+        try {
+            List<Product> products = null;
+            boolean bySku = false;
+            boolean narrowed = false;
+
+            Basis previous = basis;
+            if (previous != null && previous.generation == generation
+                    && extendsQuery(previous.query, query)) {
+                if (previous.bySku) {
+                    products = filterBySku(previous.products, query, signal);
+                    bySku = true;
+                    narrowed = true;
+                } else {
+                    // No FTS match means the full search falls back to SKU, which has to ask SQLite
+                    List<Product> filtered = filterByWords(previous.products, query, signal);
+                    if (!filtered.isEmpty()) {
+                        products = filtered;
+                        narrowed = true;
+                    }
+                }
+            }
+
+            if (products == null) {
+                // One extra row tells whether the cap cut anything off
+                products = db.searchProductsByFts(query, MAX_RESULTS + 1, signal);
+                if (products == null || products.isEmpty()) {
+                    products = db.searchProductsBySku(query, MAX_RESULTS + 1, signal);
+                    bySku = true;
+                }
+            }
+
+            boolean capped = products.size() > MAX_RESULTS;
+            if (capped) {
+                products = new ArrayList<>(products.subList(0, MAX_RESULTS));
+            }
+            // Rows past the cap are missing, so a capped result can't be narrowed
+            basis = capped ? null : new Basis(query, products, bySku, generation);
+
+            long micros = (System.nanoTime() - start) / 1000;
+            record(micros, narrowed);
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, String.format("'%s': %d rows in %d us%s%s", query, products.size(), micros,
+                        narrowed ? ", narrowed" : "", capped ? ", capped" : ""));
+            }
+            return new Result(query, products, capped, narrowed, micros);
+        } catch (OperationCanceledException e) {
+            cancelledSearches.incrementAndGet();
+            throw e;
+        }
+    }
+
+    // ================= METRICS =================
+
+    public long getSearchCount() {
+        return searches.get();
+    }
+
+    public long getNarrowedCount() {
+        return narrowedSearches.get();
+    }
+
+    public long getCancelledCount() {
+        return cancelledSearches.get();
+    }
+
+    public long getAverageLatencyMicros() {
+        long count = searches.get();
+        return count == 0 ? 0 : totalMicros.get() / count;
+    }
+
+    public long getMaxLatencyMicros() {
+        return maxMicros.get();
+    }
+
+    private void record(long micros, boolean narrowed) {
+        searches.incrementAndGet();
+        if (narrowed) narrowedSearches.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+            // retry
+        }
+    }
+
+    // ================= NARROWING =================
+
+    // Every row matching query also matched previous: query adds characters to
+    // its end, and previous had words, so its FTS search ran and wasn't a fallback
+    // that a new word could have turned into an FTS match
+    private static boolean extendsQuery(String previous, String query) {
+        return query.startsWith(previous) && !previous.trim().isEmpty()
+                && DatabaseHelper.toFtsQuery(previous) != null;
+    }
+
+    // Same rows and order as SQL_SEARCH_PRODUCTS: every word is a prefix of a word
+    // in name, SKU, category or supplier. Words are split and lowercased the way
+    // the FTS "simple" tokenizer does it (ASCII letters and digits, and anything
+    // non-ASCII, lowercasing ASCII only).
+    private static List<Product> filterByWords(List<Product> products, String query,
+                                               CancellationSignal signal) {
+        String[] terms = DatabaseHelper.toFtsQuery(query).replace("*", "").split(" ");
+        List<Product> matches = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            if (i % CHECK_INTERVAL == 0) signal.throwIfCanceled();
+            Product product = products.get(i);
+            if (matchesAllTerms(product, terms)) {
+                matches.add(product);
+            }
+        }
+
+        String prefix = query.trim() + "%";
+        Collections.sort(matches, Comparator
+                .comparingInt((Product p) -> like(p.getName(), prefix) ? 0 : like(p.getSku(), prefix) ? 1 : 2)
+                .thenComparing(Product::getName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return matches;
+    }
+
+    // Same rows as searchProductsBySku(); the order (by name) is already right
+    private static List<Product> filterBySku(List<Product> products, String query,
+                                             CancellationSignal signal) {
+        String pattern = "%" + query.trim() + "%";
+        List<Product> matches = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            if (i % CHECK_INTERVAL == 0) signal.throwIfCanceled();
+            Product product = products.get(i);
+            if (like(product.getSku(), pattern)) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean matchesAllTerms(Product product, String[] terms) {
+        for (String term : terms) {
+            if (!hasWordWithPrefix(product.getName(), term)
+                    && !hasWordWithPrefix(product.getSku(), term)
+                    && !hasWordWithPrefix(product.getCategory(), term)
+                    && !hasWordWithPrefix(product.getSupplier(), term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordWithPrefix(String text, String prefix) {
+        if (text == null) return false;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !DatabaseHelper.isFtsTokenChar(text.charAt(i))) i++;
+            int start = i;
+            while (i < length && DatabaseHelper.isFtsTokenChar(text.charAt(i))) i++;
+            if (i - start >= prefix.length() && startsWithFolded(text, start, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWithFolded(String text, int offset, String prefix) {
+        for (int j = 0; j < prefix.length(); j++) {
+            if (DatabaseHelper.foldFtsCase(text.charAt(offset + j)) != prefix.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    private static char foldAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    // SQLite's default LIKE: % and _ wildcards, case-insensitive for ASCII only
+    private static boolean like(String text, String pattern) {
+        if (text == null) return false;
+        int t = 0, p = 0, starP = -1, starT = 0;
+        while (t < text.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '%') {
+                starP = p++;
+                starT = t;
+            } else if (p < pattern.length() && (pattern.charAt(p) == '_'
+                    || foldAscii(pattern.charAt(p)) == foldAscii(text.charAt(t)))) {
+                p++;
+                t++;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                t = ++starT;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '%') p++;
+        return p == pattern.length();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.myapplication;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs database work on a small background pool and delivers the result on the
+// main thread. Work started for a LifecycleOwner (normally a fragment's view) is
+// cancelled when that owner is destroyed: a read that hasn't started is skipped,
+// and any result that arrives later is dropped instead of reaching a dead view.
+// Writes always run to completion, only their callback is dropped.
+public final class QueryExecutor {
+
+    private static final String TAG = "QueryExecutor";
+
+    // SQLite in WAL mode runs one writer and a few readers at a time; more
+    // threads than that would only queue inside the connection pool
+    private static final int THREADS =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    public interface Query<T> {
+        T run() throws Exception;
+    }
+
+    public interface Callback<T> {
+        void onResult(T result);
+
+        // Called on the main thread instead of onResult when the query threw
+        default void onError(Exception error) {
+            Log.e(TAG, "Query failed", error);
+        }
+    }
+
+    public static final class Task {
+        private volatile boolean cancelled;
+
+        // Safe from any thread; the callback won't run after this returns on the main thread
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static volatile QueryExecutor instance;
+
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static QueryExecutor getInstance() {
+        if (instance == null) {
+            synchronized (QueryExecutor.class) {
+                if (instance == null) {
+                    instance = new QueryExecutor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private QueryExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "inventory-db-" + count.incrementAndGet());
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+    }
+
+    // A read for owner; call on the main thread
+    public <T> Task execute(@Nullable LifecycleOwner owner, Query<T> query, Callback<T> callback) {
+        return submit(owner, query, callback, true);
+    }
+
+    // A write: runs even if owner is destroyed first. Call on the main thread.
+    public <T> Task executeWrite(@Nullable LifecycleOwner owner, Query<T> write, Callback<T> callback) {
+        return submit(owner, write, callback, false);
+    }
+
+    private <T> Task submit(@Nullable LifecycleOwner owner, Query<T> query, Callback<T> callback,
+                            boolean skipIfCancelled) {
+        Task task = new Task();
+        LifecycleEventObserver observer = null;
+
+        if (owner != null) {
+            if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                task.cancel();
+                if (skipIfCancelled) return task;
+            } else {
+                observer = (source, event) -> {
+                    if (event == Lifecycle.Event.ON_DESTROY) {
+                        task.cancel();
+                    }
+                };
+                owner.getLifecycle().addObserver(observer);
+            }
+        }
+
+        LifecycleEventObserver registered = observer;
+        executor.execute(() -> {
+            T result = null;
+            Exception error = null;
+            if (!skipIfCancelled || !task.isCancelled()) {
+                try {
+                    result = query.run();
+                } catch (Exception e) {
+                    error = e;
+                }
+            }
+
+            T delivered = result;
+            Exception failed = error;
+            mainHandler.post(() -> {
+                if (registered != null) {
+                    owner.getLifecycle().removeObserver(registered);
+                }
+                if (task.isCancelled()) {
+                    // Nobody else will close a dropped Closeable result
+                    closeQuietly(delivered);
+                    return;
+                }
+                if (failed != null) {
+                    callback.onError(failed);
+                } else {
+                    callback.onResult(delivered);
+                }
+            });
+        });
+        return task;
+    }
+
+    static void closeQuietly(Object result) {
+        if (!(result instanceof Closeable)) return;
+        try {
+            ((Closeable) result).close();
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Closing a result failed", e);
+        }
+    }
+}
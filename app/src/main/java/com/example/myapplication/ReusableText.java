@@ -0,0 +1,98 @@
+package com.example.myapplication;
+
+import android.widget.TextView;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+// Text for one TextView, built in a char buffer that is reused from bind to bind.
+// TextView.setText(char[], int, int) shows the buffer itself instead of a copy, so
+// once the buffer is large enough rebuilding the text allocates nothing. For the
+// same reason a buffer belongs to exactly one view.
+public final class ReusableText {
+
+    private final TextView view;
+    private final char zeroDigit;
+    private final char decimalSeparator;
+    private char[] chars = new char[32];
+    private int length;
+
+    public ReusableText(TextView view) {
+        this.view = view;
+        // What Money.format() uses for the default locale
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault());
+        this.zeroDigit = symbols.getZeroDigit();
+        this.decimalSeparator = symbols.getDecimalSeparator();
+    }
+
+    public ReusableText clear() {
+        length = 0;
+        return this;
+    }
+
+    // null appends "null", like string concatenation
+    public ReusableText append(String text) {
+        if (text == null) text = "null";
+        int count = text.length();
+        ensureCapacity(length + count);
+        text.getChars(0, count, chars, length);
+        length += count;
+        return this;
+    }
+
+    public ReusableText append(char c) {
+        ensureCapacity(length + 1);
+        chars[length++] = c;
+        return this;
+    }
+
+    // Same digits as String.valueOf(long)
+    public ReusableText append(long value) {
+        if (value < 0) {
+            append('-');
+        } else {
+            value = -value;
+        }
+        return appendNegated(value, 1, '0');
+    }
+
+    // Same text as Money.format(): 1250 -> "$12.50", -5 -> "$-0.05"
+    public ReusableText appendMoney(long cents) {
+        append('$');
+        if (cents < 0) {
+            append('-');
+        }
+        // Negative values throughout, Long.MIN_VALUE has no positive counterpart
+        long negated = cents < 0 ? cents : -cents;
+        appendNegated(negated / 100, 1, zeroDigit);
+        append(decimalSeparator);
+        return appendNegated(negated % 100, 2, zeroDigit);
+    }
+
+    public void show() {
+        view.setText(chars, 0, length);
+    }
+
+    // Digits of -value, at least minDigits of them
+    private ReusableText appendNegated(long value, int minDigits, char zero) {
+        int digits = 0;
+        for (long rest = value; rest != 0; rest /= 10) digits++;
+        digits = Math.max(digits, minDigits);
+
+        ensureCapacity(length + digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            chars[i] = (char) (zero - (int) (value % 10));
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            char[] grown = new char[Math.max(capacity, chars.length * 2)];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+    }
+}
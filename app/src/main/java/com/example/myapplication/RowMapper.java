@@ -0,0 +1,63 @@
+package com.example.myapplication;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Turns the rows of one cursor into objects. Column positions are looked up
+// once when the mapper is created, not per row; columns left out of the
+// query's projection resolve to -1 and are simply not read.
+public abstract class RowMapper<T> {
+
+    protected final Cursor cursor;
+
+    protected RowMapper(Cursor cursor) {
+        this.cursor = cursor;
+    }
+
+    // Maps the row the cursor is currently on
+    public abstract T map();
+
+    // Maps every row and closes the cursor
+    public List<T> mapAll() {
+        try {
+            List<T> rows = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                rows.add(map());
+            }
+            return rows;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // First row or null, closes the cursor
+    public T mapFirst() {
+        try {
+            return cursor.moveToFirst() ? map() : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    protected int column(String name) {
+        return cursor.getColumnIndex(name);
+    }
+
+    protected String getString(int column) {
+        return column < 0 ? null : cursor.getString(column);
+    }
+
+    protected int getInt(int column) {
+        return column < 0 ? 0 : cursor.getInt(column);
+    }
+
+    protected long getLong(int column) {
+        return column < 0 ? 0 : cursor.getLong(column);
+    }
+
+    protected double getDouble(int column) {
+        return column < 0 ? 0 : cursor.getDouble(column);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.myapplication;
+
+// When DatabaseHelper checkpoints per-product stock into stock_snapshots:
+// after intervalMillis has passed or movementThreshold movements were recorded,
+// whichever comes first. A value <= 0 disables that trigger.
+public class SnapshotPolicy {
+
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    public static final SnapshotPolicy DEFAULT = new SnapshotPolicy(DAY_MILLIS, 1000);
+
+    private final long intervalMillis;
+    private final int movementThreshold;
+
+    public SnapshotPolicy(long intervalMillis, int movementThreshold) {
+        this.intervalMillis = intervalMillis;
+        this.movementThreshold = movementThreshold;
+    }
+
+    public static SnapshotPolicy daily() {
+        return new SnapshotPolicy(DAY_MILLIS, 0);
+    }
+
+    public static SnapshotPolicy everyMovements(int movements) {
+        return new SnapshotPolicy(0, movements);
+    }
+
+    public long getIntervalMillis() { return intervalMillis; }
+
+    public int getMovementThreshold() { return movementThreshold; }
+
+    boolean isDue(long lastTakenAt, long movementsSince, long now) {
+        if (movementsSince == 0) return false;
+        return (intervalMillis > 0 && now - lastTakenAt >= intervalMillis)
+                || (movementThreshold > 0 && movementsSince >= movementThreshold);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.myapplication;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Timed phases of a cold start, so a slower startup shows up as a number. Every
+// phase is logged under the "StartupTracer" tag with its time since the process
+// started; sections add their duration and also show up in system traces.
+// finish() logs the report of everything up to the first screen showing data.
+// Phases that end after it are still logged, just not part of the report.
+// Any thread.
+public final class StartupTracer {
+
+    private static final String TAG = "StartupTracer";
+
+    private static final StartupTracer instance = new StartupTracer();
+
+    public static final class Phase {
+        private final String name;
+        private final String thread;
+        private final long atMillis;
+        // -1 for a mark, which has no duration
+        private final long durationMillis;
+
+        Phase(String name, String thread, long atMillis, long durationMillis) {
+            this.name = name;
+            this.thread = thread;
+            this.atMillis = atMillis;
+            this.durationMillis = durationMillis;
+        }
+
+        public String getName() { return name; }
+        public String getThread() { return thread; }
+        // Since process start
+        public long getAtMillis() { return atMillis; }
+        public long getDurationMillis() { return durationMillis; }
+
+        @Override
+        public String toString() {
+            String text = String.format(Locale.US, "%-18s at %5d ms", name, atMillis);
+            if (durationMillis >= 0) {
+                text += String.format(Locale.US, ", took %4d ms", durationMillis);
+            }
+            return text + " [" + thread + "]";
+        }
+    }
+
+    // Must end on the thread that began it
+    public final class Section {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+
+        private Section(String name) {
+            this.name = name;
+        }
+
+        public void end() {
+            Trace.endSection();
+            record(name, (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    private final List<Phase> phases = new ArrayList<>();
+    private boolean finished;
+
+    public static StartupTracer getInstance() {
+        return instance;
+    }
+
+    private StartupTracer() {
+    }
+
+    // Something happened now
+    public void mark(String name) {
+        record(name, -1);
+    }
+
+    public Section begin(String name) {
+        Trace.beginSection(name);
+        return new Section(name);
+    }
+
+    // The first screen shows its data. Logs the report the first time and
+    // returns whether this was it.
+    public boolean finish(String name) {
+        String report;
+        synchronized (this) {
+            if (finished) return false;
+            phases.add(phase(name, -1));
+            finished = true;
+            report = getReport();
+        }
+        Log.i(TAG, "Startup:\n" + report);
+        return true;
+    }
+
+    public synchronized List<Phase> getPhases() {
+        return new ArrayList<>(phases);
+    }
+
+    public synchronized String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (Phase phase : phases) {
+            report.append(phase).append('\n');
+        }
+        return report.toString();
+    }
+
+    private void record(String name, long durationMillis) {
+        Phase phase = phase(name, durationMillis);
+        synchronized (this) {
+            if (!finished) phases.add(phase);
+        }
+        Log.i(TAG, phase.toString());
+    }
+
+    private static Phase phase(String name, long durationMillis) {
+        long at = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        return new Phase(name, Thread.currentThread().getName(), at, durationMillis);
+    }
+}
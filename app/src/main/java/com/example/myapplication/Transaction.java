@@ -8,20 +8,26 @@ import android.view.LayoutInflater;
 
 
 public class Transaction implements Serializable {
-    private String id;
-    private String productId;
+    private long id;
+    private long productId;
     private String productName;
-    private String type; // "in" or "out"
+    private MovementType type;
     private int quantity;
     private String notes;
     private long timestamp;
 
     public Transaction() {
-        this.id = String.valueOf(System.currentTimeMillis());
+        this.id = IdGenerator.nextId();
         this.timestamp = System.currentTimeMillis();
     }
 
-    public Transaction(String productId, String productName, String type,
+    // A transaction that already has an id, e.g. a row read back from the
+    // database; doesn't draw a new one
+    Transaction(long id) {
+        this.id = id;
+    }
+
+    public Transaction(long productId, String productName, MovementType type,
                        int quantity, String notes) {
         this();
         this.productId = productId;
@@ -32,17 +38,17 @@ public class Transaction implements Serializable {
     }
 
     // Getters and Setters
-    public String getId() { return id; }
-    public void setId(String id) { this.id = id; }
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
 
-    public String getProductId() { return productId; }
-    public void setProductId(String productId) { this.productId = productId; }
+    public long getProductId() { return productId; }
+    public void setProductId(long productId) { this.productId = productId; }
 
     public String getProductName() { return productName; }
     public void setProductName(String productName) { this.productName = productName; }
 
-    public String getType() { return type; }
-    public void setType(String type) { this.type = type; }
+    public MovementType getType() { return type; }
+    public void setType(MovementType type) { this.type = type; }
 
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
@@ -54,6 +60,6 @@ public class Transaction implements Serializable {
     public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
 
     public boolean isStockIn() {
-        return "in".equals(type);
+        return type == MovementType.IN;
     }
 }
@@ -19,6 +19,7 @@ import com.google.android.material.button.MaterialButton;
 import com.example.myapplication.R;
 import com.example.myapplication.BackupManager;
 import com.example.myapplication.GoogleDriveBackupManager;
+import com.example.myapplication.QueryExecutor;
 import java.io.File;
 
 public class BackupFragment extends Fragment {
@@ -30,6 +31,7 @@ public class BackupFragment extends Fragment {
     private ActivityResultLauncher<Intent> signInLauncher;
     private ProgressDialog progressDialog;
     private Handler mainHandler;
+    private final QueryExecutor executor = QueryExecutor.getInstance();
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
@@ -53,7 +55,7 @@ public class BackupFragment extends Fragment {
                 new ActivityResultContracts.StartActivityForResult(),
                 result -> {
                     if (result.getData() != null) {
-                        driveBackupManager.handleSignInResult(result.getData(),
+                        driveBackupManager().handleSignInResult(result.getData(),
                                 new GoogleDriveBackupManager.SignInCallback() {
                                     @Override
                                     public void onSuccess() {
@@ -86,12 +88,19 @@ public class BackupFragment extends Fragment {
 
         initViews(view);
         backupManager = new BackupManager(requireContext());
-        driveBackupManager = new GoogleDriveBackupManager(requireContext());
         setupClickListeners();
 
         return view;
     }
 
+    // Made on the first cloud action; most visits to this screen never get there
+    private GoogleDriveBackupManager driveBackupManager() {
+        if (driveBackupManager == null) {
+            driveBackupManager = new GoogleDriveBackupManager(requireContext().getApplicationContext());
+        }
+        return driveBackupManager;
+    }
+
     private void initViews(View view) {
         btnExport = view.findViewById(R.id.btn_export);
         btnImport = view.findViewById(R.id.btn_import);
@@ -107,16 +116,21 @@ public class BackupFragment extends Fragment {
     }
 
     private void exportData() {
-        try {
-            File backupFile = backupManager.saveBackupToFile();
-            Toast.makeText(requireContext(),
-                    "Backup saved to: " + backupFile.getAbsolutePath(),
-                    Toast.LENGTH_LONG).show();
-        } catch (Exception e) {
-            Toast.makeText(requireContext(),
-                    "Export failed: " + e.getMessage(),
-                    Toast.LENGTH_SHORT).show();
-        }
+        executor.executeWrite(this, backupManager::saveBackupToFile, new QueryExecutor.Callback<File>() {
+            @Override
+            public void onResult(File backupFile) {
+                Toast.makeText(requireContext(),
+                        "Backup saved to: " + backupFile.getAbsolutePath(),
+                        Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(requireContext(),
+                        "Export failed: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void selectFile() {
@@ -130,62 +144,77 @@ public class BackupFragment extends Fragment {
         new AlertDialog.Builder(requireContext())
                 .setTitle("Confirm Import")
                 .setMessage("This will replace all current data. Continue?")
-                .setPositiveButton("Import", (dialog, which) -> {
-                    try {
-                        backupManager.loadBackupFromFile(uri);
-                        Toast.makeText(requireContext(),
-                                "Data imported successfully!",
-                                Toast.LENGTH_SHORT).show();
-                    } catch (Exception e) {
-                        Toast.makeText(requireContext(),
-                                "Import failed: " + e.getMessage(),
-                                Toast.LENGTH_SHORT).show();
-                    }
-                })
+                .setPositiveButton("Import", (dialog, which) ->
+                        executor.executeWrite(this, () -> {
+                            backupManager.loadBackupFromFile(uri);
+                            return null;
+                        }, new QueryExecutor.Callback<Void>() {
+                            @Override
+                            public void onResult(Void done) {
+                                Toast.makeText(requireContext(),
+                                        "Data imported successfully!",
+                                        Toast.LENGTH_SHORT).show();
+                            }
+
+                            @Override
+                            public void onError(Exception e) {
+                                Toast.makeText(requireContext(),
+                                        "Import failed: " + e.getMessage(),
+                                        Toast.LENGTH_SHORT).show();
+                            }
+                        }))
                 .setNegativeButton("Cancel", null)
                 .show();
     }
 
     private void cloudBackup() {
-        if (!driveBackupManager.isSignedIn()) {
-            signInLauncher.launch(driveBackupManager.getSignInIntent());
+        if (!driveBackupManager().isSignedIn()) {
+            signInLauncher.launch(driveBackupManager().getSignInIntent());
             return;
         }
 
         showProgress("Uploading to Google Drive...");
 
-        try {
-            String jsonData = backupManager.exportToJson();
+        executor.execute(this, backupManager::exportToJson, new QueryExecutor.Callback<String>() {
+            @Override
+            public void onResult(String jsonData) {
+                uploadBackup(jsonData);
+            }
 
-            driveBackupManager.uploadBackup(jsonData,
-                    new GoogleDriveBackupManager.UploadCallback() {
-                        @Override
-                        public void onSuccess(String message) {
-                            mainHandler.post(() -> {
-                                hideProgress();
-                                Toast.makeText(requireContext(), message, Toast.LENGTH_LONG).show();
-                            });
-                        }
+            @Override
+            public void onError(Exception e) {
+                hideProgress();
+                Toast.makeText(requireContext(),
+                        "Backup failed: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
 
-                        @Override
-                        public void onFailure(String error) {
-                            mainHandler.post(() -> {
-                                hideProgress();
-                                Toast.makeText(requireContext(), error, Toast.LENGTH_LONG).show();
-                            });
-                        }
-                    });
-        } catch (Exception e) {
-            hideProgress();
-            Toast.makeText(requireContext(),
-                    "Backup failed: " + e.getMessage(),
-                    Toast.LENGTH_SHORT).show();
-        }
+    private void uploadBackup(String jsonData) {
+        driveBackupManager().uploadBackup(jsonData,
+                new GoogleDriveBackupManager.UploadCallback() {
+                    @Override
+                    public void onSuccess(String message) {
+                        mainHandler.post(() -> {
+                            hideProgress();
+                            Toast.makeText(requireContext(), message, Toast.LENGTH_LONG).show();
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        mainHandler.post(() -> {
+                            hideProgress();
+                            Toast.makeText(requireContext(), error, Toast.LENGTH_LONG).show();
+                        });
+                    }
+                });
     }
 
     private void cloudRestore() {
-        if (!driveBackupManager.isSignedIn()) {
-            signInLauncher.launch(driveBackupManager.getSignInIntent());
+        if (!driveBackupManager().isSignedIn()) {
+            signInLauncher.launch(driveBackupManager().getSignInIntent());
             return;
         }
 
@@ -195,24 +224,11 @@ public class BackupFragment extends Fragment {
                 .setPositiveButton("Restore", (dialog, which) -> {
                     showProgress("Downloading from Google Drive...");
 
-                    driveBackupManager.downloadBackup(
+                    driveBackupManager().downloadBackup(
                             new GoogleDriveBackupManager.DownloadCallback() {
                                 @Override
                                 public void onSuccess(String jsonData) {
-                                    mainHandler.post(() -> {
-                                        try {
-                                            backupManager.importFromJson(jsonData);
-                                            hideProgress();
-                                            Toast.makeText(requireContext(),
-                                                    "Data restored from Google Drive!",
-                                                    Toast.LENGTH_LONG).show();
-                                        } catch (Exception e) {
-                                            hideProgress();
-                                            Toast.makeText(requireContext(),
-                                                    "Restore failed: " + e.getMessage(),
-                                                    Toast.LENGTH_SHORT).show();
-                                        }
-                                    });
+                                    mainHandler.post(() -> restoreBackup(jsonData));
                                 }
 
                                 @Override
@@ -228,6 +244,29 @@ public class BackupFragment extends Fragment {
                 .show();
     }
 
+    private void restoreBackup(String jsonData) {
+        executor.executeWrite(this, () -> {
+            backupManager.importFromJson(jsonData);
+            return null;
+        }, new QueryExecutor.Callback<Void>() {
+            @Override
+            public void onResult(Void done) {
+                hideProgress();
+                Toast.makeText(requireContext(),
+                        "Data restored from Google Drive!",
+                        Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                hideProgress();
+                Toast.makeText(requireContext(),
+                        "Restore failed: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
     private void showProgress(String message) {
         mainHandler.post(() -> {
             progressDialog = new ProgressDialog(requireContext());
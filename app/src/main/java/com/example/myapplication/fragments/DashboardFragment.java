@@ -10,31 +10,35 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.myapplication.R;
 import com.example.myapplication.ProductAdapter;
-import com.example.myapplication.DatabaseHelper;
+import com.example.myapplication.DashboardSnapshot;
+import com.example.myapplication.InventoryStats;
+import com.example.myapplication.Money;
 import com.example.myapplication.Product;
+import com.example.myapplication.StartupTracer;
 import com.github.mikephil.charting.charts.PieChart;
 import com.github.mikephil.charting.data.PieData;
 import com.github.mikephil.charting.data.PieDataSet;
 import com.github.mikephil.charting.data.PieEntry;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class DashboardFragment extends Fragment {
 
-    private DatabaseHelper db;
+    private DashboardViewModel viewModel;
+    private ProductAdapter lowStockAdapter;
 
     private TextView tvTotalProducts, tvTotalItems, tvTotalValue, tvLowStock;
     private RecyclerView rvLowStock;
     private PieChart pieChart;
     private View cardLowStock;
+    private ShownViewLifecycle shownLifecycle;
 
     @Nullable
     @Override
@@ -43,7 +47,7 @@ public class DashboardFragment extends Fragment {
 
         View view = inflater.inflate(R.layout.fragment_dashboard, container, false);
 
-        db = new DatabaseHelper(requireContext());
+        viewModel = new ViewModelProvider(this).get(DashboardViewModel.class);
 
         tvTotalProducts = view.findViewById(R.id.tv_total_products);
         tvTotalItems = view.findViewById(R.id.tv_total_items);
@@ -54,34 +58,10 @@ public class DashboardFragment extends Fragment {
         rvLowStock = view.findViewById(R.id.rv_low_stock);
         pieChart = view.findViewById(R.id.pie_chart);
 
-        loadStats();
-        loadLowStock();
-        loadCategoryChart();
-
-        return view;
-    }
-
-    private void loadStats() {
-        tvTotalProducts.setText(String.valueOf(db.getTotalProductCount()));
-        tvTotalItems.setText(String.valueOf(db.getTotalItemCount()));
-        tvTotalValue.setText(String.format("$%.2f", db.getTotalInventoryValue()));
-    }
-
-    private void loadLowStock() {
-        List<Product> lowStock = db.getLowStockProducts();
-        tvLowStock.setText(String.valueOf(lowStock.size()));
-
-        if (lowStock.isEmpty()) {
-            cardLowStock.setVisibility(View.GONE);
-            return;
-        }
-
-        cardLowStock.setVisibility(View.VISIBLE);
-
         rvLowStock.setLayoutManager(new LinearLayoutManager(requireContext()));
 
         // FIXED: must implement all 3 interface methods
-        ProductAdapter adapter = new ProductAdapter(new ProductAdapter.OnProductClickListener() {
+        lowStockAdapter = new ProductAdapter(new ProductAdapter.OnProductClickListener() {
             @Override
             public void onProductClick(Product product) { }
 
@@ -91,27 +71,59 @@ public class DashboardFragment extends Fragment {
             @Override
             public void onDeleteClick(Product product) { }
         });
+        rvLowStock.setAdapter(lowStockAdapter);
 
-        adapter.setProducts(lowStock);
-        rvLowStock.setAdapter(adapter);
+        return view;
     }
 
-    private void loadCategoryChart() {
-        List<Product> products = db.getAllProducts();
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        // Only while the tab is shown
+        shownLifecycle = new ShownViewLifecycle(this);
+        viewModel.getSnapshot().observe(shownLifecycle, snapshot -> {
+            loadStats(snapshot);
+            loadLowStock(snapshot);
+            loadCategoryChart(snapshot);
+
+            // The end of a cold start: the first screen shows real numbers
+            if (StartupTracer.getInstance().finish("dashboard.data")) {
+                requireActivity().reportFullyDrawn();
+            }
+        });
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (shownLifecycle != null) shownLifecycle.setHidden(hidden);
+    }
 
-        Map<String, Integer> map = new HashMap<>();
+    private void loadStats(DashboardSnapshot snapshot) {
+        InventoryStats stats = snapshot.getStats();
+        tvTotalProducts.setText(String.valueOf(stats.getProductCount()));
+        tvTotalItems.setText(String.valueOf(stats.getItemCount()));
+        tvTotalValue.setText(Money.format(stats.getInventoryValueCents()));
+    }
 
-        for (Product p : products) {
-            String category = (p.getCategory() == null || p.getCategory().trim().isEmpty())
-                    ? "Uncategorized"
-                    : p.getCategory();
+    private void loadLowStock(DashboardSnapshot snapshot) {
+        List<Product> lowStock = snapshot.getLowStockProducts();
+        tvLowStock.setText(String.valueOf(snapshot.getLowStockCount()));
 
-            map.put(category, map.getOrDefault(category, 0) + p.getQuantity());
+        if (lowStock.isEmpty()) {
+            cardLowStock.setVisibility(View.GONE);
+            return;
         }
 
+        cardLowStock.setVisibility(View.VISIBLE);
+        lowStockAdapter.setProducts(lowStock);
+    }
+
+    private void loadCategoryChart(DashboardSnapshot snapshot) {
         List<PieEntry> entries = new ArrayList<>();
-        for (String key : map.keySet()) {
-            entries.add(new PieEntry(map.get(key), key));
+        for (DashboardSnapshot.CategoryTotal total : snapshot.getCategories()) {
+            entries.add(new PieEntry(total.getQuantity(), total.getCategory()));
         }
 
         PieDataSet dataSet = new PieDataSet(entries, "");
@@ -0,0 +1,38 @@
+package com.example.myapplication.fragments;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+
+import com.example.myapplication.DashboardSnapshot;
+import com.example.myapplication.DatabaseHelper;
+import com.example.myapplication.InventoryRepository;
+import com.example.myapplication.LiveQuery;
+
+// The dashboard's snapshot, kept while the tab's fragment lives and reloaded
+// only when products change
+public class DashboardViewModel extends AndroidViewModel {
+
+    private static final int LOW_STOCK_LIMIT = 10;
+
+    private final LiveQuery<DashboardSnapshot> snapshot;
+
+    public DashboardViewModel(@NonNull Application application) {
+        super(application);
+        InventoryRepository repository = InventoryRepository.getInstance(application);
+        // Stats, low stock and categories all come from products
+        snapshot = repository.liveQuery(() -> repository.getDashboardSnapshot(LOW_STOCK_LIMIT),
+                DatabaseHelper.TABLE_PRODUCTS);
+    }
+
+    LiveData<DashboardSnapshot> getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    protected void onCleared() {
+        snapshot.close();
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.myapplication.fragments;
 
 import android.app.AlertDialog;
+import android.database.sqlite.SQLiteConstraintException;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.LayoutInflater;
@@ -14,13 +17,16 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.myapplication.R;
 import com.example.myapplication.ProductAdapter;
-import com.example.myapplication.DatabaseHelper;
+import com.example.myapplication.InventoryRepository;
+import com.example.myapplication.Money;
 import com.example.myapplication.Product;
+import com.example.myapplication.QueryExecutor;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.textfield.TextInputEditText;
 
@@ -28,11 +34,20 @@ import java.util.List;
 
 public class ProductsFragment extends Fragment {
 
-    private DatabaseHelper db;
+    // Typing pauses shorter than this don't start a search
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+
+    private InventoryRepository repository;
+    private ProductsViewModel viewModel;
     private RecyclerView rvProducts;
     private LinearLayout emptyState;
     private EditText etSearch;
     private ProductAdapter adapter;
+    private ShownViewLifecycle shownLifecycle;
+    private final QueryExecutor executor = QueryExecutor.getInstance();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable runSearch = () -> viewModel.search(etSearch.getText().toString());
 
     @Nullable
     @Override
@@ -41,7 +56,8 @@ public class ProductsFragment extends Fragment {
 
         View view = inflater.inflate(R.layout.fragment_products, container, false);
 
-        db = new DatabaseHelper(requireContext());
+        repository = InventoryRepository.getInstance(requireContext());
+        viewModel = new ViewModelProvider(this).get(ProductsViewModel.class);
 
         rvProducts = view.findViewById(R.id.rv_products);
         emptyState = view.findViewById(R.id.empty_state);
@@ -70,14 +86,18 @@ public class ProductsFragment extends Fragment {
         });
 
         rvProducts.setAdapter(adapter);
-        loadProducts();
 
         fab.setOnClickListener(v -> showAddDialog());
 
         etSearch.addTextChangedListener(new TextWatcher() {
             @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override public void onTextChanged(CharSequence s, int start, int before, int count) {
-                search(s.toString());
+                handler.removeCallbacks(runSearch);
+                if (s.toString().trim().isEmpty()) {
+                    runSearch.run();
+                } else {
+                    handler.postDelayed(runSearch, SEARCH_DEBOUNCE_MS);
+                }
             }
             @Override public void afterTextChanged(Editable s) {}
         });
@@ -85,31 +105,37 @@ public class ProductsFragment extends Fragment {
         return view;
     }
 
-    private void loadProducts() {
-        List<Product> list = db.getAllProducts();
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
 
-        if (list.isEmpty()) {
-            emptyState.setVisibility(View.VISIBLE);
-            rvProducts.setVisibility(View.GONE);
-        } else {
-            emptyState.setVisibility(View.GONE);
-            rvProducts.setVisibility(View.VISIBLE);
-        }
+        // The catalog or search result, rerun whenever products change while the tab is shown
+        shownLifecycle = new ShownViewLifecycle(this);
+        viewModel.getProducts().observe(shownLifecycle, this::showProducts);
+    }
 
-        adapter.setProducts(list);
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (shownLifecycle != null) shownLifecycle.setHidden(hidden);
     }
 
-    private void search(String text) {
-        List<Product> results = db.searchProducts(text);
-        adapter.setProducts(results);
+    @Override
+    public void onDestroyView() {
+        handler.removeCallbacks(runSearch);
+        super.onDestroyView();
+    }
 
-        if (results.isEmpty()) {
+    private void showProducts(List<Product> list) {
+        if (list.isEmpty()) {
             emptyState.setVisibility(View.VISIBLE);
             rvProducts.setVisibility(View.GONE);
         } else {
             emptyState.setVisibility(View.GONE);
             rvProducts.setVisibility(View.VISIBLE);
         }
+
+        adapter.setProducts(list);
     }
 
     private void showAddDialog() {
@@ -144,19 +170,41 @@ public class ProductsFragment extends Fragment {
                     cat.getText().toString(),
                     parseIntSafe(qty.getText().toString()),
                     parseIntSafe(min.getText().toString()),
-                    parseDoubleSafe(price.getText().toString()),
+                    parseCentsSafe(price.getText().toString()),
                     sup.getText().toString()
             );
-            db.addProduct(p);
-            dialog.dismiss();
-            Toast.makeText(getContext(), "Product added successfully", Toast.LENGTH_SHORT).show();
-            loadProducts();
+            // The dialog stays open until the write succeeds, so nothing typed is lost
+            v.setEnabled(false);
+            executor.executeWrite(getViewLifecycleOwner(), () -> repository.addProduct(p),
+                    new QueryExecutor.Callback<Long>() {
+                        @Override
+                        public void onResult(Long id) {
+                            v.setEnabled(true);
+                            if (id == -1) {
+                                sku.setError("A product with this SKU already exists");
+                                return;
+                            }
+                            dialog.dismiss();
+                            Toast.makeText(getContext(), "Product added successfully", Toast.LENGTH_SHORT).show();
+                        }
+
+                        @Override
+                        public void onError(Exception error) {
+                            QueryExecutor.Callback.super.onError(error);
+                            v.setEnabled(true);
+                            Toast.makeText(getContext(), "Add failed: " + error.getMessage(),
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    });
         });
 
         dialog.show();
     }
 
-    private void showEditDialog(Product product) {
+    private void showEditDialog(Product shown) {
+        // Edit a copy: the adapter diffs against the product it is showing
+        Product product = new Product(shown);
+
         View dialogView = LayoutInflater.from(getContext()).inflate(R.layout.dialog_add_product, null);
 
         TextInputEditText name = dialogView.findViewById(R.id.et_product_name);
@@ -173,7 +221,7 @@ public class ProductsFragment extends Fragment {
         cat.setText(product.getCategory());
         qty.setText(String.valueOf(product.getQuantity()));
         min.setText(String.valueOf(product.getMinStock()));
-        price.setText(String.valueOf(product.getPrice()));
+        price.setText(Money.toPlainString(product.getPriceCents()));
         sup.setText(product.getSupplier());
 
         AlertDialog dialog = new AlertDialog.Builder(getContext())
@@ -196,13 +244,32 @@ public class ProductsFragment extends Fragment {
             product.setCategory(cat.getText().toString());
             product.setQuantity(parseIntSafe(qty.getText().toString()));
             product.setMinStock(parseIntSafe(min.getText().toString()));
-            product.setPrice(parseDoubleSafe(price.getText().toString()));
+            product.setPriceCents(parseCentsSafe(price.getText().toString()));
             product.setSupplier(sup.getText().toString());
 
-            db.updateProduct(product);
-            dialog.dismiss();
-            Toast.makeText(getContext(), "Product updated successfully", Toast.LENGTH_SHORT).show();
-            loadProducts();
+            v.setEnabled(false);
+            executor.executeWrite(getViewLifecycleOwner(), () -> repository.updateProduct(product),
+                    new QueryExecutor.Callback<Integer>() {
+                        @Override
+                        public void onResult(Integer rows) {
+                            dialog.dismiss();
+                            Toast.makeText(getContext(), rows > 0
+                                    ? "Product updated successfully"
+                                    : "Product no longer exists", Toast.LENGTH_SHORT).show();
+                        }
+
+                        @Override
+                        public void onError(Exception error) {
+                            QueryExecutor.Callback.super.onError(error);
+                            v.setEnabled(true);
+                            if (error instanceof SQLiteConstraintException) {
+                                sku.setError("A product with this SKU already exists");
+                            } else {
+                                Toast.makeText(getContext(), "Update failed: " + error.getMessage(),
+                                        Toast.LENGTH_SHORT).show();
+                            }
+                        }
+                    });
         });
 
         dialog.show();
@@ -214,9 +281,10 @@ public class ProductsFragment extends Fragment {
                 .setTitle("Delete Product")
                 .setMessage("Are you sure you want to delete '" + product.getName() + "'?")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    db.deleteProduct(product.getId());
-                    Toast.makeText(getContext(), "Product deleted", Toast.LENGTH_SHORT).show();
-                    loadProducts();
+                    executor.executeWrite(getViewLifecycleOwner(), () -> {
+                        repository.deleteProduct(product.getId());
+                        return null;
+                    }, done -> Toast.makeText(getContext(), "Product deleted", Toast.LENGTH_SHORT).show());
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
@@ -229,7 +297,7 @@ public class ProductsFragment extends Fragment {
                 "\nCategory: " + product.getCategory() +
                 "\nQuantity: " + product.getQuantity() +
                 "\nMin Stock: " + product.getMinStock() +
-                "\nPrice: $" + String.format("%.2f", product.getPrice()) +
+                "\nPrice: " + Money.format(product.getPriceCents()) +
                 "\nSupplier: " + product.getSupplier();
 
         new AlertDialog.Builder(getContext())
@@ -248,12 +316,12 @@ public class ProductsFragment extends Fragment {
         }
     }
 
-    // ✅ NEW METHOD: Safe double parsing
-    private double parseDoubleSafe(String value) {
+    // ✅ NEW METHOD: Safe price parsing, to cents
+    private long parseCentsSafe(String value) {
         try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            return 0.0;
+            return Money.parseCents(value);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return 0;
         }
     }
 }
\ No newline at end of file
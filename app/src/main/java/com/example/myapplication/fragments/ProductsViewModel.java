@@ -0,0 +1,61 @@
+package com.example.myapplication.fragments;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+
+import com.example.myapplication.DatabaseHelper;
+import com.example.myapplication.InventoryRepository;
+import com.example.myapplication.LiveQuery;
+import com.example.myapplication.Product;
+import com.example.myapplication.ProductSearch;
+
+import java.util.List;
+
+// The product list and the search it shows, kept while the tab's fragment lives.
+// The list is the whole catalog while browsing and the search result otherwise;
+// either is rerun only when products change.
+public class ProductsViewModel extends AndroidViewModel {
+
+    private final InventoryRepository repository;
+    private final ProductSearch productSearch;
+    private final LiveQuery<List<Product>> products;
+    // What the list shows results for; empty while browsing
+    private String shownQuery = "";
+
+    public ProductsViewModel(@NonNull Application application) {
+        super(application);
+        repository = InventoryRepository.getInstance(application);
+        productSearch = repository.getProductSearch();
+        // Browsing reads the whole catalog a page at a time, only around the rows on screen
+        products = repository.liveQuery(repository::openProductList, DatabaseHelper.TABLE_PRODUCTS);
+    }
+
+    LiveData<List<Product>> getProducts() {
+        return products;
+    }
+
+    void search(String text) {
+        if (text.trim().isEmpty()) text = "";
+        if (text.equals(shownQuery)) return;
+        shownQuery = text;
+
+        if (text.isEmpty()) {
+            productSearch.cancel();
+            products.setQuery(repository::openProductList);
+            return;
+        }
+
+        // Cancels the previous search, also if it is still running in SQLite
+        ProductSearch.Request request = productSearch.newRequest(text);
+        products.setQuery(() -> repository.search(request).getProducts());
+    }
+
+    @Override
+    protected void onCleared() {
+        productSearch.cancel();
+        products.close();
+    }
+}
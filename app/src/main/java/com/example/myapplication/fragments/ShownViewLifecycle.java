@@ -0,0 +1,52 @@
+package com.example.myapplication.fragments;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+// A tab fragment's view lifecycle, held at CREATED while the tab is hidden.
+// Hidden tabs stay started so their views survive, but LiveData observed with
+// this owner goes inactive, which stops a LiveQuery until the tab is shown again.
+// Made in onViewCreated(); the fragment passes on onHiddenChanged(). Main thread only.
+final class ShownViewLifecycle implements LifecycleOwner, LifecycleEventObserver {
+
+    private final LifecycleRegistry registry = new LifecycleRegistry(this);
+    private Lifecycle.State viewState = Lifecycle.State.INITIALIZED;
+    private boolean hidden;
+
+    ShownViewLifecycle(Fragment fragment) {
+        hidden = fragment.isHidden();
+        fragment.getViewLifecycleOwner().getLifecycle().addObserver(this);
+    }
+
+    void setHidden(boolean hidden) {
+        this.hidden = hidden;
+        update();
+    }
+
+    @NonNull
+    @Override
+    public Lifecycle getLifecycle() {
+        return registry;
+    }
+
+    @Override
+    public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        viewState = source.getLifecycle().getCurrentState();
+        update();
+        if (event == Lifecycle.Event.ON_DESTROY) {
+            source.getLifecycle().removeObserver(this);
+        }
+    }
+
+    private void update() {
+        Lifecycle.State state = viewState;
+        if (hidden && state.isAtLeast(Lifecycle.State.STARTED)) {
+            state = Lifecycle.State.CREATED;
+        }
+        registry.setCurrentState(state);
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.myapplication.fragments;
 
 import android.app.AlertDialog;
+import android.content.Context;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
+import android.widget.Filter;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.AutoCompleteTextView;
@@ -13,12 +16,19 @@ import android.widget.AutoCompleteTextView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.myapplication.R;
-import com.example.myapplication.DatabaseHelper;
+import com.example.myapplication.InventoryRepository;
+import com.example.myapplication.EndlessScrollListener;
+import com.example.myapplication.MovementType;
 import com.example.myapplication.Product;
+import com.example.myapplication.QueryExecutor;
+import com.example.myapplication.ReusableText;
 import com.example.myapplication.Transaction;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -28,9 +38,16 @@ import java.util.List;
 
 public class TransactionsFragment extends Fragment {
 
-    private DatabaseHelper db;
+    private static final int PICKER_RESULTS = 20;
+
+    private InventoryRepository repository;
+    private TransactionsViewModel viewModel;
     private RecyclerView rvTransactions;
     private LinearLayout emptyState;
+    private TransactionAdapter adapter;
+    private EndlessScrollListener scrollListener;
+    private ShownViewLifecycle shownLifecycle;
+    private final QueryExecutor executor = QueryExecutor.getInstance();
 
     @Nullable
     @Override
@@ -39,24 +56,46 @@ public class TransactionsFragment extends Fragment {
 
         View view = inflater.inflate(R.layout.fragment_transactions, container, false);
 
-        db = new DatabaseHelper(requireContext());
+        repository = InventoryRepository.getInstance(requireContext());
+        viewModel = new ViewModelProvider(this).get(TransactionsViewModel.class);
 
         rvTransactions = view.findViewById(R.id.rv_transactions);
         emptyState = view.findViewById(R.id.empty_state);
 
         rvTransactions.setLayoutManager(new LinearLayoutManager(requireContext()));
 
+        adapter = new TransactionAdapter();
+        rvTransactions.setAdapter(adapter);
+
+        // The ledger is only read a page at a time as the user scrolls
+        scrollListener = new EndlessScrollListener(() -> viewModel.loadMore(getViewLifecycleOwner()));
+        rvTransactions.addOnScrollListener(scrollListener);
+
         FloatingActionButton fab = view.findViewById(R.id.fab_add_transaction);
 
         fab.setOnClickListener(v -> showAddTransactionDialog());
 
-        loadTransactions();
-
         return view;
     }
 
-    private void loadTransactions() {
-        List<Transaction> list = db.getAllTransactions();
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        // Only while the tab is shown
+        shownLifecycle = new ShownViewLifecycle(this);
+        viewModel.getTransactions().observe(shownLifecycle, this::showTransactions);
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (shownLifecycle != null) shownLifecycle.setHidden(hidden);
+    }
+
+    // Both a reload from the top and an appended page end up here
+    private void showTransactions(List<Transaction> list) {
+        scrollListener.reset(viewModel.hasMore());
 
         if (list.isEmpty()) {
             emptyState.setVisibility(View.VISIBLE);
@@ -66,7 +105,7 @@ public class TransactionsFragment extends Fragment {
             rvTransactions.setVisibility(View.VISIBLE);
         }
 
-        rvTransactions.setAdapter(new TransactionAdapter(list));
+        adapter.setTransactions(list);
     }
 
     private void showAddTransactionDialog() {
@@ -78,16 +117,16 @@ public class TransactionsFragment extends Fragment {
         TextInputEditText qty = dialogView.findViewById(R.id.et_quantity);
         TextInputEditText notes = dialogView.findViewById(R.id.et_notes);
 
-        List<Product> products = db.getAllProducts();
-
-        ArrayList<String> productNames = new ArrayList<>();
-        for (Product p : products) productNames.add(p.getName());
+        ProductPickerAdapter pickerAdapter = new ProductPickerAdapter(requireContext(), repository);
+        spinnerProduct.setAdapter(pickerAdapter);
 
-        spinnerProduct.setAdapter(new ArrayAdapter<>(getContext(),
-                android.R.layout.simple_list_item_1, productNames));
+        Product[] picked = new Product[1];
+        spinnerProduct.setOnItemClickListener((parent, item, position, id) ->
+                picked[0] = pickerAdapter.getProduct(position));
 
         spinnerType.setAdapter(new ArrayAdapter<>(getContext(),
-                android.R.layout.simple_list_item_1, new String[]{"in", "out"}));
+                android.R.layout.simple_list_item_1,
+                new String[]{MovementType.IN.getKey(), MovementType.OUT.getKey()}));
 
         AlertDialog dialog = new AlertDialog.Builder(getContext())
                 .setView(dialogView)
@@ -96,47 +135,124 @@ public class TransactionsFragment extends Fragment {
         dialogView.findViewById(R.id.btn_cancel).setOnClickListener(v -> dialog.dismiss());
 
         dialogView.findViewById(R.id.btn_save).setOnClickListener(v -> {
-            Product p = products.get(productNames.indexOf(spinnerProduct.getText().toString()));
+            // Typing after picking a suggestion un-picks it
+            Product p = picked[0];
+            if (p == null || !ProductPickerAdapter.label(p).equals(spinnerProduct.getText().toString())) {
+                spinnerProduct.setError("Pick a product from the list");
+                return;
+            }
 
             int qtyVal = Integer.parseInt(qty.getText().toString());
-            String type = spinnerType.getText().toString();
+            MovementType type = MovementType.fromKey(spinnerType.getText().toString());
 
-            if (type.equals("out") && p.getQuantity() < qtyVal) {
-                qty.setError("Insufficient stock");
+            if (qtyVal <= 0) {
+                qty.setError("Enter a quantity");
                 return;
             }
 
-            Transaction t = new Transaction(
-                    p.getId(),
-                    p.getName(),
-                    type,
-                    qtyVal,
-                    notes.getText().toString()
-            );
-
-            db.addTransaction(t);
-
-            if (type.equals("in")) {
-                p.setQuantity(p.getQuantity() + qtyVal);
-            } else {
-                p.setQuantity(p.getQuantity() - qtyVal);
+            if (type == null) {
+                spinnerType.setError("Select in or out");
+                return;
             }
-            db.updateProduct(p);
 
-            dialog.dismiss();
-            loadTransactions();
+            String notesStr = notes.getText().toString();
+
+            // Stock check and quantity change happen in SQL against the current row,
+            // not against the (possibly stale) Product loaded when the dialog opened
+            v.setEnabled(false);
+            executor.executeWrite(getViewLifecycleOwner(),
+                    () -> repository.recordMovement(p.getId(), type, qtyVal, notesStr), t -> {
+                        if (t == null) {
+                            v.setEnabled(true);
+                            qty.setError("Insufficient stock");
+                            return;
+                        }
+
+                        dialog.dismiss();
+                    });
         });
 
         dialog.show();
     }
 
-    // Simple adapter for transactions
+    // Product suggestions as the user types, looked up in the in-memory product index
+    private static class ProductPickerAdapter extends ArrayAdapter<String> {
+
+        private final InventoryRepository repository;
+        private List<Product> products = new ArrayList<>();
+
+        ProductPickerAdapter(Context context, InventoryRepository repository) {
+            super(context, android.R.layout.simple_list_item_1);
+            this.repository = repository;
+            setNotifyOnChange(false);
+        }
+
+        static String label(Product product) {
+            return product.getName() + " (" + product.getSku() + ")";
+        }
+
+        Product getProduct(int position) {
+            return products.get(position);
+        }
+
+        @NonNull
+        @Override
+        public Filter getFilter() {
+            return filter;
+        }
+
+        private final Filter filter = new Filter() {
+            // On the filter's own background thread
+            @Override
+            protected FilterResults performFiltering(CharSequence constraint) {
+                List<Product> found = constraint == null ? new ArrayList<>()
+                        : repository.lookupProducts(constraint.toString(), PICKER_RESULTS);
+                FilterResults results = new FilterResults();
+                results.values = found;
+                results.count = found.size();
+                return results;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected void publishResults(CharSequence constraint, FilterResults results) {
+                products = (List<Product>) results.values;
+                clear();
+                for (Product product : products) {
+                    add(label(product));
+                }
+                notifyDataSetChanged();
+            }
+        };
+    }
+
+    // Simple adapter for transactions, diffed like ProductAdapter
     private static class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.Holder> {
 
-        private final List<Transaction> list;
+        private static final DiffUtil.ItemCallback<Transaction> DIFF =
+                new DiffUtil.ItemCallback<Transaction>() {
+                    @Override
+                    public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+                        return oldItem.getId() == newItem.getId();
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+                        return oldItem.getType() == newItem.getType()
+                                && oldItem.getQuantity() == newItem.getQuantity()
+                                && TextUtils.equals(oldItem.getProductName(), newItem.getProductName())
+                                && TextUtils.equals(oldItem.getNotes(), newItem.getNotes());
+                    }
+                };
+
+        private final AsyncListDiffer<Transaction> differ = new AsyncListDiffer<>(this, DIFF);
+
+        TransactionAdapter() {
+            setHasStableIds(true);
+        }
 
-        public TransactionAdapter(List<Transaction> list) {
-            this.list = list;
+        void setTransactions(List<Transaction> transactions) {
+            differ.submitList(transactions);
         }
 
         @NonNull
@@ -149,22 +265,29 @@ public class TransactionsFragment extends Fragment {
         @Override
         public void onBindViewHolder(@NonNull Holder h, int i) {
 
-            Transaction t = list.get(i);
+            Transaction t = differ.getCurrentList().get(i);
 
             h.type.setText(t.isStockIn() ? "STOCK IN" : "STOCK OUT");
-            h.qty.setText((t.isStockIn() ? "+" : "-") + t.getQuantity());
+            h.qtyText.clear().append(t.isStockIn() ? '+' : '-').append(t.getQuantity()).show();
             h.name.setText(t.getProductName());
-            h.notes.setText("Notes: " + t.getNotes());
+            h.notesText.clear().append("Notes: ").append(t.getNotes()).show();
         }
 
         @Override
         public int getItemCount() {
-            return list.size();
+            return differ.getCurrentList().size();
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return differ.getCurrentList().get(position).getId();
         }
 
         static class Holder extends RecyclerView.ViewHolder {
 
             TextView type, date, name, qty, notes;
+            // Rebuilt in place on every bind instead of concatenating new strings
+            final ReusableText qtyText, notesText;
 
             public Holder(@NonNull View v) {
                 super(v);
@@ -174,6 +297,8 @@ public class TransactionsFragment extends Fragment {
                 name = v.findViewById(R.id.tv_product_name);
                 qty = v.findViewById(R.id.tv_quantity);
                 notes = v.findViewById(R.id.tv_transaction_notes);
+                qtyText = new ReusableText(qty);
+                notesText = new ReusableText(notes);
             }
         }
     }
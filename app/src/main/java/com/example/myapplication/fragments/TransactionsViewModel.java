@@ -0,0 +1,136 @@
+package com.example.myapplication.fragments;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import com.example.myapplication.DatabaseHelper;
+import com.example.myapplication.InventoryRepository;
+import com.example.myapplication.LiveQuery;
+import com.example.myapplication.QueryExecutor;
+import com.example.myapplication.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The ledger rows loaded so far, kept while the tab's fragment lives. Pages are
+// appended as the user scrolls. When transactions change only the newest page is
+// read again and put in front of the older rows already loaded; new movements
+// only ever appear at the top. After a write that may have changed older rows
+// (InventoryRepository.getLedgerGeneration()) the ledger starts over at one page.
+public class TransactionsViewModel extends AndroidViewModel {
+
+    // The newest page and the ledger generation it was read in
+    private static final class Head {
+        final long generation;
+        final List<Transaction> rows;
+
+        Head(long generation, List<Transaction> rows) {
+            this.generation = generation;
+            this.rows = rows;
+        }
+    }
+
+    private final InventoryRepository repository;
+    private final LiveQuery<Head> head;
+    private final MediatorLiveData<List<Transaction>> ledger = new MediatorLiveData<>();
+    private QueryExecutor.Task pageTask;
+    private long generation = -1;
+    private boolean hasMore = true;
+
+    public TransactionsViewModel(@NonNull Application application) {
+        super(application);
+        repository = InventoryRepository.getInstance(application);
+        head = repository.liveQuery(() -> {
+            // Read first: a rewrite during the query is caught by the rerun it causes
+            long seen = repository.getLedgerGeneration();
+            return new Head(seen, repository.getTransactionsPage(null, DatabaseHelper.PAGE_SIZE));
+        }, DatabaseHelper.TABLE_TRANSACTIONS);
+        ledger.addSource(head, this::showHead);
+    }
+
+    private void showHead(Head head) {
+        // A page still loading was asked for against the list being replaced
+        cancelPage();
+        List<Transaction> merged = head.generation == generation ? merge(head.rows, ledger.getValue()) : null;
+        generation = head.generation;
+        if (merged == null) {
+            merged = head.rows;
+            hasMore = head.rows.size() == DatabaseHelper.PAGE_SIZE;
+        }
+        ledger.setValue(merged);
+    }
+
+    // head followed by the loaded rows older than it, or null if the oldest row of
+    // head isn't among them (more new rows than a page)
+    private static List<Transaction> merge(List<Transaction> head, List<Transaction> shown) {
+        if (shown == null || head.size() < DatabaseHelper.PAGE_SIZE) return null;
+        long oldest = head.get(head.size() - 1).getId();
+        for (int i = 0; i < shown.size(); i++) {
+            if (shown.get(i).getId() == oldest) {
+                List<Transaction> merged = new ArrayList<>(head.size() + shown.size() - i - 1);
+                merged.addAll(head);
+                merged.addAll(shown.subList(i + 1, shown.size()));
+                return merged;
+            }
+        }
+        return null;
+    }
+
+    LiveData<List<Transaction>> getTransactions() {
+        return ledger;
+    }
+
+    // Whether the rows shown may not be the whole ledger
+    boolean hasMore() {
+        return hasMore;
+    }
+
+    // Reads the page after the last row shown and appends it. Dropped if owner
+    // goes away first; the next view asks again.
+    void loadMore(LifecycleOwner owner) {
+        List<Transaction> shown = ledger.getValue();
+        if (shown == null || shown.isEmpty() || (pageTask != null && !pageTask.isCancelled())) return;
+        Transaction last = shown.get(shown.size() - 1);
+
+        pageTask = QueryExecutor.getInstance().execute(owner,
+                () -> repository.getTransactionsPage(last, DatabaseHelper.PAGE_SIZE),
+                new QueryExecutor.Callback<List<Transaction>>() {
+                    @Override
+                    public void onResult(List<Transaction> page) {
+                        pageTask = null;
+                        List<Transaction> combined = new ArrayList<>(shown.size() + page.size());
+                        combined.addAll(shown);
+                        combined.addAll(page);
+                        hasMore = page.size() == DatabaseHelper.PAGE_SIZE;
+                        ledger.setValue(combined);
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        QueryExecutor.Callback.super.onError(error);
+                        pageTask = null;
+                        hasMore = false;
+                        // Same rows again, so the screen stops waiting for the page
+                        ledger.setValue(shown);
+                    }
+                });
+    }
+
+    private void cancelPage() {
+        if (pageTask != null) {
+            pageTask.cancel();
+            pageTask = null;
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        cancelPage();
+        head.close();
+    }
+}
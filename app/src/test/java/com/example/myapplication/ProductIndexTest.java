@@ -0,0 +1,196 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks ProductIndex against a brute-force scan of the same products, over
+ * random puts, removes, reloads and searches. Names and SKUs come from a small
+ * vocabulary so that queries share prefixes and trigrams with many products.
+ */
+public class ProductIndexTest {
+
+    private static final String[] WORDS = {"blue", "Bolt", "bracket", "ab", "abc", "x1", "cable", "ABLE", "9"};
+    private static final String[] SEPARATORS = {" ", " ", "-", "/", ""};
+    private static final int OPERATIONS = 3000;
+    private static final int IDS = 300;
+
+    @Test
+    public void matchesBruteForceSearch() {
+        for (long seed = 1; seed <= 5; seed++) {
+            run(new Random(seed));
+        }
+    }
+
+    @Test
+    public void ranksNamePrefixThenSkuThenWordThenSubstring() {
+        ProductIndex index = new ProductIndex();
+        index.put(1, "Other Cable", "zz-1");
+        index.put(2, "Unrelated", "cab-7");
+        index.put(3, "Cable", "zz-2");
+        index.put(4, "Encable", "zz-3");
+
+        assertArrayEquals(new long[]{3, 2, 1, 4}, index.search("  CAB ", 10));
+        assertArrayEquals(new long[]{3, 2}, index.search("cab", 2));
+        assertArrayEquals(new long[]{3, 2, 1}, index.search("Ca", 10));
+    }
+
+    @Test
+    public void putReplacesAndRemoveForgets() {
+        ProductIndex index = new ProductIndex();
+        index.put(7, "Steel Bolt", "SB-1");
+        index.put(7, "Copper Wire", "CW-1");
+
+        assertEquals(0, index.search("bolt", 10).length);
+        assertArrayEquals(new long[]{7}, index.search("wire", 10));
+        assertEquals(1, index.size());
+
+        index.remove(7);
+        assertEquals(0, index.search("wire", 10).length);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void blankQueriesMatchNothing() {
+        ProductIndex index = new ProductIndex();
+        index.put(1, "Blue Bolt", "BB-1");
+
+        assertEquals(0, index.search("   ", 10).length);
+        assertEquals(0, index.search("blue", 0).length);
+    }
+
+    private void run(Random random) {
+        ProductIndex index = new ProductIndex();
+        Map<Long, String[]> products = new HashMap<>();
+
+        for (int op = 0; op < OPERATIONS; op++) {
+            int kind = random.nextInt(100);
+            if (kind < 45) {
+                long id = 1 + random.nextInt(IDS);
+                String name = randomName(random);
+                String sku = random.nextInt(10) == 0 ? null : randomSku(random);
+                index.put(id, name, sku);
+                products.put(id, new String[]{name, sku});
+            } else if (kind < 60) {
+                long id = 1 + random.nextInt(IDS);
+                index.remove(id);
+                products.remove(id);
+            } else if (kind < 62) {
+                index.load(visitor -> {
+                    for (Map.Entry<Long, String[]> entry : products.entrySet()) {
+                        visitor.visit(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+                    }
+                });
+                assertTrue(index.isLoaded());
+            } else {
+                String query = randomQuery(random, products);
+                int limit = 1 + random.nextInt(12);
+                assertArrayEquals("query \"" + query + "\", limit " + limit,
+                        bruteForce(products, query, limit), index.search(query, limit));
+            }
+            assertEquals(products.size(), index.size());
+        }
+    }
+
+    // ================= REFERENCE =================
+
+    private static long[] bruteForce(Map<Long, String[]> products, String query, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) return new long[0];
+
+        List<Object[]> matches = new ArrayList<>();
+        for (Map.Entry<Long, String[]> entry : products.entrySet()) {
+            String name = lower(entry.getValue()[0]);
+            String sku = lower(entry.getValue()[1]);
+            int rank = q.length() < 3 ? prefixRank(name, sku, q) : substringRank(name, sku, q);
+            if (rank >= 0) {
+                matches.add(new Object[]{entry.getKey(), name, rank});
+            }
+        }
+        matches.sort((a, b) -> {
+            int c = Integer.compare((int) a[2], (int) b[2]);
+            if (c == 0) c = ((String) a[1]).compareTo((String) b[1]);
+            return c != 0 ? c : Long.compare((long) a[0], (long) b[0]);
+        });
+
+        long[] ids = new long[Math.min(limit, matches.size())];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (long) matches.get(i)[0];
+        }
+        return ids;
+    }
+
+    // Short queries only match where a word of the name starts, or the whole SKU
+    private static int prefixRank(String name, String sku, String q) {
+        if (isWordStart(name, 0) && name.startsWith(q)) return 0;
+        if (!sku.isEmpty() && sku.startsWith(q)) return 1;
+        for (int i = 1; i < name.length(); i++) {
+            if (isWordStart(name, i) && name.startsWith(q, i)) return 2;
+        }
+        return -1;
+    }
+
+    private static int substringRank(String name, String sku, String q) {
+        if (name.startsWith(q)) return 0;
+        if (sku.startsWith(q)) return 1;
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isLetterOrDigit(name.charAt(i - 1)) && name.startsWith(q, i)) return 2;
+        }
+        return name.contains(q) || sku.contains(q) ? 3 : -1;
+    }
+
+    private static boolean isWordStart(String text, int i) {
+        return i < text.length() && Character.isLetterOrDigit(text.charAt(i))
+                && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+    }
+
+    private static String lower(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // ================= DATA =================
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        if (random.nextInt(20) == 0) name.append('-');
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) name.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            name.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return name.toString();
+    }
+
+    private static String randomSku(Random random) {
+        return WORDS[random.nextInt(WORDS.length)].toUpperCase(Locale.ROOT) + "-" + random.nextInt(40);
+    }
+
+    // Mostly pieces of existing names and SKUs, sometimes padded or in another case
+    private static String randomQuery(Random random, Map<Long, String[]> products) {
+        String query;
+        if (products.isEmpty() || random.nextInt(5) == 0) {
+            query = WORDS[random.nextInt(WORDS.length)];
+        } else {
+            List<String[]> values = new ArrayList<>(products.values());
+            String[] product = values.get(random.nextInt(values.size()));
+            String text = product[random.nextInt(2)];
+            if (text == null || text.isEmpty()) text = product[0];
+            int start = random.nextInt(text.length());
+            int end = Math.min(text.length(), start + 1 + random.nextInt(5));
+            query = text.substring(start, end);
+        }
+        if (random.nextBoolean()) query = query.toUpperCase(Locale.ROOT);
+        if (random.nextInt(10) == 0) query = " " + query + " ";
+        return query;
+    }
+}